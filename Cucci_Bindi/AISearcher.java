@@ -2,6 +2,9 @@ package Cucci_Bindi;
 
 import mnkgame.MNKCell;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 import static Cucci_Bindi.Game.MAX_SCORE;
@@ -9,40 +12,162 @@ import static Cucci_Bindi.Game.MIN_SCORE;
 
 public class AISearcher {
 
+    // A ranked root move: its score for the player to move, the depth of the last completed
+    // search and the principal variation, starting with the move itself
+    public record PVLine(int move, int score, int depth, int[] pv) {
+    }
+
+    // Notified by iterativeDeepening after every completed iteration
+    public interface ProgressListener {
+        void iteration(int depth, int bestMove, int bestScore);
+    }
+
+    // Late-move reductions: moves past the first LMR_FULL_MOVES lose a ply of depth
+    private static final int LMR_FULL_MOVES = 3, LMR_MIN_DEPTH = 3;
+    private static final int NULL_MOVE_REDUCTION = 2, NULL_MOVE_MIN_DEPTH = 3;
+    private static final int TACTICAL_FLAG = 1 << 30, MOVE_MASK = TACTICAL_FLAG - 1;
+
     private Game game;
+    private final PatternEvaluator evaluator;
+    private EvalCache evalCache;
+    private int networkShare; // percent of the static score given by the game's NNUE accumulator
     private long startTime;
-    final private int timeLimit;
+    private int timeLimit;
+
+    // Search budgets, used when playing without a wall clock
+    private int depthLimit = Integer.MAX_VALUE;
+    private long nodeLimit = Long.MAX_VALUE;
+    private long nodes;
+    private boolean selective = true;
+
+    // Proof-number solver, given solverSlice of the time (half before the search, half after)
+    // and at most solverNodes nodes for each proof
+    private ProofSolver solver;
+    private double solverSlice;
+    private long solverNodes;
+    private ProgressListener progressListener;
 
+    private int perspective = Game.PLAYER_1; // player to move at the root
+
+    // Triangular principal variation table, by distance from the root; null when not collected
+    private int[][] pvTable;
+    private int[] pvLength;
+    private int lastScore;
+
+    // Scratch of orderedMoves(), reused across nodes
+    private long[] keyed = new long[0];
+
+    // A timeLimit <= 0 disables the wall clock
     public AISearcher(Game game, int timeLimit) {
+        this(game, timeLimit, PatternEvaluator.forTable(game.getWindowTable()));
+    }
+
+    public AISearcher(Game game, int timeLimit, PatternEvaluator evaluator) {
         this.game = game;
         this.timeLimit = timeLimit;
+        this.evaluator = evaluator;
+    }
+
+    // Time limit of the next searches, in seconds; <= 0 disables the wall clock
+    public void setTimeLimit(int timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    // Blends the network evaluation into the static score with the given percent share (100
+    // replaces the pattern evaluation); a null network or a share of 0 disables it
+    public void setNetwork(NnueNetwork network, int share) {
+        if (share < 0 || share > 100) throw new IllegalArgumentException("Share out of [0,100]: " + share);
+        networkShare = network == null ? 0 : share;
+        game.setAccumulator(networkShare > 0 ? network.newAccumulator() : null);
+    }
+
+    // Caches static evaluations across searches; null disables it
+    public void setEvalCache(EvalCache evalCache) {
+        this.evalCache = evalCache;
+    }
+
+    public EvalCache getEvalCache() {
+        return evalCache;
+    }
+
+    public void setDepthLimit(int depthLimit) {
+        this.depthLimit = depthLimit;
+    }
+
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    // Enables late-move reductions and null-move pruning; full-width search returns exact scores
+    public void setSelective(boolean selective) {
+        this.selective = selective;
+    }
+
+    // A proven win is played and a move proven to lose is replaced; null disables the solver
+    public void setSolver(ProofSolver solver, double slice, long nodes) {
+        this.solver = solver;
+        this.solverSlice = slice;
+        this.solverNodes = nodes;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // Nodes visited by the last search
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Score of the last selected move, from the point of view of the player who made it
+    public int getLastScore() {
+        return lastScore;
     }
 
     public void update(MNKCell move) {
         game.playMove(move);
     }
 
+    public void update(int move) {
+        game.playMove(move);
+    }
+
     public final Game getGame() {
         return game;
     }
 
     public int iterativeDeepening() {
         startTime = System.currentTimeMillis();
+        nodes = 0;
+        perspective = game.getTurn();
         int depth = game.maxDepth();
         int bestScore = MIN_SCORE - 1, bestMove = -1;
 
         Game.IntegerPair partialScore;
 
+        // Every move draws once no window is left for either player
+        if (game.isDeadDraw()) {
+            lastScore = 0;
+            return generateRandomMove();
+        }
+
+        if (solver != null && solver.solve(game, perspective, solverNodes, solverDeadline(solverSlice / 2)) == ProofSolver.PROVEN) {
+            lastScore = MAX_SCORE;
+            return solver.getBestMove();
+        }
+
         final Game backupGame = game.clone();
         try {
             //iterativeDeepening
             depth = depth > 10 ? depth / 2 : depth;
+            depth = Math.min(depth, depthLimit);
             for (int i = 0; i < depth; i++) {
                 partialScore = findBestMove(i);
                 if (partialScore.score() > bestScore) {
                     bestScore = partialScore.score();
                     bestMove = partialScore.move();
                 }
+                if (progressListener != null && bestMove >= 0) progressListener.iteration(i + 1, bestMove, bestScore);
             }
         } catch (TimeoutException ex) {
             if (bestMove == -1) bestMove = generateRandomMove();
@@ -50,10 +175,49 @@ public class AISearcher {
         if (!game.checkIfEmpty(bestMove)) bestMove = generateRandomMove();
 
         this.game = backupGame;
+        lastScore = bestScore < MIN_SCORE ? 0 : bestScore;
 
+        if (solver != null && bestScore < MAX_SCORE) bestMove = avoidProvenLoss(bestMove);
         return bestMove;
     }
 
+    // Deadline once the given fraction of the time limit is used, 0 without a clock
+    private long solverDeadline(double fraction) {
+        return timeLimit > 0 ? startTime + (long) (timeLimit * 1000 * fraction) : 0;
+    }
+
+    // The move, unless the opponent is proven to win after it and another move is not
+    private int avoidProvenLoss(int move) {
+        long deadline = solverDeadline(0.9);
+        if (!losing(move, deadline)) return move;
+        int[] moves = orderedMoves();
+        for (int i = 0; i < moves.length; i++) {
+            int candidate = moves[i] & MOVE_MASK;
+            if (candidate == move) continue;
+            if (deadline > 0 && System.currentTimeMillis() >= deadline) break;
+            if (!losing(candidate, deadline)) {
+                lastScore = 0;
+                return candidate;
+            }
+        }
+        lastScore = MIN_SCORE;
+        return move;
+    }
+
+    private boolean losing(int move, long deadline) {
+        game.playMove(move);
+        try {
+            return solver.solve(game, -perspective, solverNodes, deadline) == ProofSolver.PROVEN;
+        } finally {
+            game.unPlayMove();
+        }
+    }
+
+    // Fraction of the time limit after which the alpha-beta search stops
+    private double searchFraction() {
+        return 0.9 - (solver != null ? solverSlice / 2 : 0);
+    }
+
     private int generateRandomMove() {
         for (int move : game.generateMoves()) {
             return move;
@@ -98,114 +262,215 @@ public class AISearcher {
         return new Game.IntegerPair(partialBestMove, score);
     }
 
-    private int AlphaBeta(boolean minimum, int depth, int alpha, int beta) throws TimeoutException {
-        int val, a, b;
-
-        timeCheck();
+    // Plain fixed-depth search, without the heuristics of iterativeDeepening: returns the
+    // best root move and its score for the player to move
+    public Game.IntegerPair search(int depth) throws TimeoutException {
+        startTime = System.currentTimeMillis();
+        nodes = 0;
+        perspective = game.getTurn();
 
-        if (depth == 0) {
-            val = evaluate();
-        } else if (minimum) {
-            val = MIN_SCORE;
-            a = alpha;
-            for (int move : getGame().generateMoves()) {
-                if (val < beta) {
-                    game.playMove(move);
-                    val = Math.max(val, AlphaBeta(false, depth - 1, a, beta));
-                    a = Math.max(a, val);
-                    game.unPlayMove();
-                }
+        int bestScore = MIN_SCORE - 1, bestMove = -1;
+        for (int move : getGame().generateMoves()) {
+            game.playMove(move);
+            int score = AlphaBeta(false, depth - 1, Math.max(bestScore, MIN_SCORE), MAX_SCORE);
+            game.unPlayMove();
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
             }
-        } else {
-            val = MAX_SCORE;
-            b = beta;
-            for (int move : getGame().generateMoves()) {
-                if (val > alpha) {
-                    game.playMove(move);
-                    val = Math.min(val, AlphaBeta(true, depth - 1, alpha, b));
-                    b = Math.min(b, val);
-                    game.unPlayMove();
+        }
+        return new Game.IntegerPair(bestMove, bestScore);
+    }
+
+    /**
+     * Ranks the best root moves for the player to move. Each line is found by iterative
+     * deepening up to maxDepth over the root moves not reported yet, so every extra line only
+     * searches the remaining moves; a line stops deepening once its score is a proven result.
+     * The search runs within the time and node limits of this searcher: with a timeLimit <= 0
+     * it can be called outside any player. Fewer lines are returned when the budget runs out.
+     */
+    public List<PVLine> multiPV(int lines, int maxDepth) {
+        startTime = System.currentTimeMillis();
+        nodes = 0;
+        perspective = game.getTurn();
+        maxDepth = Math.min(Math.min(maxDepth, depthLimit), game.maxDepth());
+
+        List<PVLine> result = new ArrayList<>();
+        boolean[] excluded = new boolean[game.getRows() * game.getCols()];
+        pvTable = new int[maxDepth + 2][maxDepth + 2];
+        pvLength = new int[maxDepth + 2];
+        try {
+            while (result.size() < lines) {
+                PVLine line = null;
+                try {
+                    for (int depth = 1; depth <= maxDepth; depth++) {
+                        PVLine deeper = rootSearch(depth, excluded);
+                        if (deeper == null) break;
+                        line = deeper;
+                        if (Math.abs(line.score()) >= MAX_SCORE) break;
+                    }
+                } catch (TimeoutException e) {
+                    if (line != null) result.add(line);
+                    break;
                 }
+                if (line == null) break;
+                result.add(line);
+                excluded[line.move()] = true;
             }
-
+        } finally {
+            pvTable = null;
+            pvLength = null;
         }
-        return val;
+        return result;
     }
 
-    protected void timeCheck() throws TimeoutException {
-        if ((System.currentTimeMillis() - startTime) / 1000 > timeLimit * (90.0 / 100.0))
-            throw new TimeoutException();
+    // Best root move outside excluded at the given depth, null if none is left
+    private PVLine rootSearch(int depth, boolean[] excluded) throws TimeoutException {
+        int bestScore = MIN_SCORE - 1, bestMove = -1;
+        int[] bestPv = null;
+        for (int move : getGame().generateMoves()) {
+            if (excluded[move]) continue;
+            game.playMove(move);
+            int score;
+            try {
+                score = -negamax(1, depth - 1, -MAX_SCORE, -Math.max(bestScore, MIN_SCORE), true);
+            } finally {
+                game.unPlayMove();
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                bestPv = new int[pvLength[1] + 1];
+                bestPv[0] = move;
+                System.arraycopy(pvTable[1], 0, bestPv, 1, pvLength[1]);
+            }
+        }
+        return bestMove < 0 ? null : new PVLine(bestMove, bestScore, depth, bestPv);
     }
 
-    public int evaluate() {
-        int score = 0;
-
-        int winner = getGame().getWinner();
-
-        if (winner == Game.PLAYER_1) return MAX_SCORE;
-        else if (winner == Game.PLAYER_2) return MIN_SCORE;
-        else {
-            for (int row = 0; row < game.getRows(); row++)
-                score += evaluate(game.getCellsForRow(row));
-
-            for (int col = 0; col < game.getCols(); col++)
-                score += evaluate(game.getCellsForColumns(col));
-
-            for (int diag = 0; diag < game.getDiagonals(); diag++)
-                if (game.getDiagonalSize(diag) >= game.getK()) score += evaluate(game.getDiagonalSquares(diag));
+    // Exact score of a root move at the given depth, for the player to move
+    public int scoreMove(int move, int depth) throws TimeoutException {
+        startTime = System.currentTimeMillis();
+        nodes = 0;
+        perspective = game.getTurn();
 
-            for (int diag = 0; diag < game.getDiagonals(); diag++)
-                if (game.getDiagonalSize(diag) >= game.getK()) score += evaluate(game.getAntiDiagonalSquares(diag));
+        game.playMove(move);
+        try {
+            return AlphaBeta(false, depth - 1, MIN_SCORE, MAX_SCORE);
+        } finally {
+            game.unPlayMove();
         }
-        return score;
     }
 
-    protected int evaluate(int[] line) {
-        int k = game.getK();
-        if (line.length < k) return 0;
-
-        int p1 = 0;
-        int p2 = 0;
+    // Minimax wrapper over negamax: minimum is true where the root player moves
+    private int AlphaBeta(boolean minimum, int depth, int alpha, int beta) throws TimeoutException {
+        return minimum ? negamax(1, depth, alpha, beta, true) : -negamax(1, depth, -beta, -alpha, true);
+    }
 
-        for (int i = 0; i < k - 1; i++) {
-            if (line[i] == Game.PLAYER_1) {
-                p1++;
-            } else if (line[i] == Game.PLAYER_2) {
-                p2++;
+    // Score for the player to move. Moves are tried in the order of their static score: late
+    // quiet moves are searched one ply shallower first, and the player to move may pass to
+    // prove a fail high with a shallower search
+    private int negamax(int ply, int depth, int alpha, int beta, boolean nullAllowed) throws TimeoutException {
+        timeCheck();
+        nodes++;
+        if (pvLength != null) pvLength[ply] = 0;
+
+        int side = game.getTurn() == perspective ? 1 : -1;
+        if (depth == 0 || game.getWinner() != Game.PLAYER_NONE || game.maxDepth() == 0)
+            return side * evaluate();
+        // No window is left for either player: a draw, whatever the remaining moves
+        if (game.isDeadDraw())
+            return 0;
+
+        // A stone never hurts in an m,n,k-game, so passing is a lower bound unless the reduced
+        // search misses a forced win: skip it when the opponent has a threat to build on
+        if (selective && nullAllowed && depth >= NULL_MOVE_MIN_DEPTH && beta < MAX_SCORE
+                && game.getThreats(-game.getTurn()) == 0 && side * evaluate() >= beta) {
+            game.playNullMove();
+            int score;
+            try {
+                score = -negamax(ply + 1, depth - 1 - NULL_MOVE_REDUCTION, -beta, -beta + 1, false);
+            } finally {
+                game.unPlayNullMove();
             }
+            if (score >= beta) return beta;
         }
 
-        int[] p1Score = new int[line.length - k + 1];
-        int[] p2Score = new int[line.length - k + 1];
-        for (int i = 0; i < p1Score.length; i++) {
-            if (line[i + k - 1] == Game.PLAYER_1) {
-                p1++;
-            } else if (line[i + k - 1] == Game.PLAYER_2) {
-                p2++;
-            }
-            p1Score[i] = (p2 <= 0) ? (1 << p1) - 1 : 0;
-            p2Score[i] = (p1 <= 0) ? (1 << p2) - 1 : 0;
-            if (line[i] == Game.PLAYER_1) {
-                p1--;
-            } else if (line[i] == Game.PLAYER_2) {
-                p2--;
+        int[] moves = orderedMoves();
+        int val = MIN_SCORE;
+        for (int i = 0; i < moves.length && val < beta; i++) {
+            int move = moves[i] & MOVE_MASK;
+            boolean reduce = selective && i >= LMR_FULL_MOVES && depth >= LMR_MIN_DEPTH
+                    && (moves[i] & TACTICAL_FLAG) == 0;
+
+            game.playMove(move);
+            int score;
+            try {
+                if (reduce) {
+                    score = -negamax(ply + 1, depth - 2, -alpha - 1, -alpha, true);
+                    if (score > alpha) score = -negamax(ply + 1, depth - 1, -beta, -alpha, true);
+                } else {
+                    score = -negamax(ply + 1, depth - 1, -beta, -alpha, true);
+                }
+            } finally {
+                game.unPlayMove();
             }
+            if (score > alpha && pvLength != null) extendPv(ply, move);
+            val = Math.max(val, score);
+            alpha = Math.max(alpha, val);
         }
+        return val;
+    }
 
-        int[] p1MaxScore = new int[p1Score.length];
-        int[] p2MaxScore = new int[p2Score.length];
-        for (int i = p1MaxScore.length - 1; i >= 0; i--) {
-            p1MaxScore[i] = p1Score[i];
-            p2MaxScore[i] = p2Score[i];
-            if (i < p1MaxScore.length - 1 - k) {
-                p1MaxScore[i] += p1MaxScore[i + k];
-                p2MaxScore[i] += p2MaxScore[i + k];
-            }
-            for (int j = 1; j < Math.min(k, p1MaxScore.length - i); j++) {
-                if (p1MaxScore[i] < p1MaxScore[i + j]) p1MaxScore[i] = p1MaxScore[i + j];
-                if (p2MaxScore[i] < p2MaxScore[i + j]) p2MaxScore[i] = p2MaxScore[i + j];
-            }
+    // The variation at ply becomes move followed by the variation found below it
+    private void extendPv(int ply, int move) {
+        int length = pvLength[ply + 1];
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, length);
+        pvLength[ply] = length + 1;
+    }
+
+    // Legal moves, best static score first, with TACTICAL_FLAG set on tactical moves
+    private int[] orderedMoves() {
+        if (keyed.length < game.maxDepth()) keyed = new long[game.maxDepth()];
+        int n = 0;
+        for (int move : game.generateMoves())
+            keyed[n++] = (long) evaluator.moveScore(game, move) << 32 | move;
+        Arrays.sort(keyed, 0, n);
+
+        int[] moves = new int[n];
+        for (int i = 0; i < n; i++) {
+            long key = keyed[n - 1 - i];
+            moves[i] = (int) key | ((key >>> 32) >= PatternEvaluator.TACTICAL ? TACTICAL_FLAG : 0);
+        }
+        return moves;
+    }
+
+    protected void timeCheck() throws TimeoutException {
+        if (Thread.currentThread().isInterrupted())
+            throw new TimeoutException();
+        if (nodes >= nodeLimit)
+            throw new TimeoutException();
+        if (timeLimit > 0 && (System.currentTimeMillis() - startTime) / 1000.0 > timeLimit * searchFraction())
+            throw new TimeoutException();
+    }
+
+    // Evaluation from the point of view of the player to move at the root
+    public int evaluate() {
+        int winner = getGame().getWinner();
+
+        if (winner != Game.PLAYER_NONE) return winner == perspective ? MAX_SCORE : MIN_SCORE;
+
+        int score = evalCache == null ? EvalCache.MISS : evalCache.probe(game.getHash());
+        if (score == EvalCache.MISS) {
+            // Heuristic scores never reach the value of a win
+            NnueAccumulator accumulator = game.getAccumulator();
+            if (networkShare == 0 || accumulator == null) score = evaluator.evaluate(game);
+            else if (networkShare == 100) score = accumulator.evaluate();
+            else score = (evaluator.evaluate(game) * (100 - networkShare) + accumulator.evaluate() * networkShare) / 100;
+            score = Math.max(MIN_SCORE + 1, Math.min(MAX_SCORE - 1, score));
+            if (evalCache != null) evalCache.store(game.getHash(), score);
         }
-        return p1MaxScore[0] - p2MaxScore[0];
+        return perspective * score;
     }
-}
\ No newline at end of file
+}
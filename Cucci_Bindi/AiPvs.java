@@ -1,17 +1,111 @@
 package Cucci_Bindi;
 
 import mnkgame.MNKCell;
-import mnkgame.MNKPlayer;
+import mnkgame.MNKCellCache;
+import mnkgame.MNKIncrementalPlayer;
+import mnkgame.MNKProgressListener;
+import mnkgame.MNKProgressReporter;
+import mnkgame.MNKTimedPlayer;
 
-public class AiPvs implements MNKPlayer {
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class AiPvs implements MNKIncrementalPlayer, MNKProgressReporter, MNKTimedPlayer {
+
+    // Memory budget of the evaluation cache, in megabytes (0 disables it)
+    private static final int EVAL_CACHE_MB = Integer.getInteger("Cucci_Bindi.evalCacheMB", 16);
+    // Evaluation weights written by Tuner, used when they were tuned for the same K
+    private static final String WEIGHTS = System.getProperty("Cucci_Bindi.weights");
+    // NNUE network written by NnueTrainer, used when trained for the same geometry, and its
+    // percent share of the static evaluation
+    private static final String NETWORK = System.getProperty("Cucci_Bindi.nnue");
+    private static final int NETWORK_SHARE = Integer.getInteger("Cucci_Bindi.nnueShare", 50);
+    // Share of each move's time given to the proof-number solver (0 disables it), and its table
+    private static final double SOLVER_SLICE = Double.parseDouble(System.getProperty("Cucci_Bindi.solverSlice", "0.2"));
+    private static final int SOLVER_MB = Integer.getInteger("Cucci_Bindi.solverMB", 16);
+    // Share of the initPlayer time spent warming up the JIT, once per geometry (0 disables it)
+    private static final double WARMUP_FRACTION = Double.parseDouble(System.getProperty("Cucci_Bindi.warmupFraction", "0.3"));
+    private static final long WARMUP_NODES = 20000; // per synthetic search
+
+    private static final Set<Long> warmedUp = ConcurrentHashMap.newKeySet();
 
     private Game game;
     private AISearcher searcher;
+    private MNKCellCache cells;
+    private MNKProgressListener progressListener;
 
     @Override
     public void initPlayer(int M, int N, int K, boolean first, int timeout_in_secs) {
+        long start = System.currentTimeMillis();
         game = new Game(M, N, K);
-        searcher = new AISearcher(game, timeout_in_secs);
+        PatternEvaluator evaluator = null;
+        if (WEIGHTS != null) {
+            try {
+                evaluator = PatternEvaluator.load(Path.of(WEIGHTS), game.getWindowTable());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Cannot load weights from " + WEIGHTS + ": " + e.getMessage());
+            }
+        }
+        NnueNetwork network = null;
+        if (NETWORK != null) {
+            try {
+                network = NnueNetwork.load(Path.of(NETWORK), M, N, K);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Cannot load network from " + NETWORK + ": " + e.getMessage());
+            }
+        }
+        searcher = evaluator == null ? new AISearcher(game, timeout_in_secs)
+                : new AISearcher(game, timeout_in_secs, evaluator);
+        searcher.setNetwork(network, NETWORK_SHARE);
+        searcher.setEvalCache(EvalCache.ofMegabytes(EVAL_CACHE_MB));
+        if (SOLVER_SLICE > 0) searcher.setSolver(ProofSolver.ofMegabytes(SOLVER_MB), SOLVER_SLICE, Long.MAX_VALUE);
+        cells = MNKCellCache.forGeometry(M, N);
+        setProgressListener(progressListener);
+
+        if (WARMUP_FRACTION > 0 && warmedUp.add(((long) M << 40) | ((long) N << 20) | K))
+            warmUp(evaluator, network, start + (long) (timeout_in_secs * 1000 * WARMUP_FRACTION));
+    }
+
+    // Searches random positions of the geometry until the deadline, so that the first moves
+    // run JIT-compiled make/unmake, search, evaluation and solver code
+    private void warmUp(PatternEvaluator evaluator, NnueNetwork network, long deadline) {
+        Random rand = new Random(game.getRows() * 1_000_003L + game.getCols() * 1009L + game.getK());
+        EvalCache evalCache = new EvalCache(1 << 16);
+        ProofSolver solver = new ProofSolver(1 << 12);
+        int[] moves = new int[game.getRows() * game.getCols()];
+
+        while (System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted()) {
+            Game position = game.clone();
+            int stones = rand.nextInt(Math.min(moves.length - 1, 2 * game.getK()) + 1);
+            for (int s = 0; s < stones && position.getWinner() == Game.PLAYER_NONE; s++) {
+                int count = 0;
+                for (int move : position.generateMoves()) moves[count++] = move;
+                position.playMove(moves[rand.nextInt(count)]);
+            }
+            if (position.getWinner() != Game.PLAYER_NONE || position.maxDepth() == 0) continue;
+
+            AISearcher warmUp = evaluator == null ? new AISearcher(position, 0) : new AISearcher(position, 0, evaluator);
+            warmUp.setEvalCache(evalCache);
+            warmUp.setNetwork(network, NETWORK_SHARE);
+            warmUp.setNodeLimit(WARMUP_NODES);
+            warmUp.iterativeDeepening();
+            solver.solve(position, position.getTurn(), WARMUP_NODES, deadline);
+        }
+    }
+
+    @Override
+    public void setProgressListener(MNKProgressListener listener) {
+        progressListener = listener;
+        if (searcher != null) searcher.setProgressListener(listener == null ? null
+                : (depth, move, score) -> listener.progress(depth, cells.get(game.getRow(move), game.getCol(move))));
+    }
+
+    @Override
+    public void setMoveTimeout(int timeout_in_secs) {
+        searcher.setTimeLimit(timeout_in_secs);
     }
 
     @Override
@@ -21,13 +115,22 @@ public class AiPvs implements MNKPlayer {
 
     @Override
     public MNKCell selectCell(MNKCell[] FC, MNKCell[] MC) {
-        if (MC.length > 1)
-            searcher.update(MC[MC.length - 2]);
         if (MC.length > 0)
-            searcher.update(MC[MC.length - 1]);
+            onOpponentMove(MC[MC.length - 1].i, MC[MC.length - 1].j);
+
+        return selectMove();
+    }
 
+    @Override
+    public void onOpponentMove(int i, int j) {
+        searcher.update(game.getMove(i, j));
+    }
+
+    @Override
+    public MNKCell selectMove() {
         int move = searcher.iterativeDeepening();
+        searcher.update(move);
 
-        return new MNKCell(game.getRow(move), game.getCol(move));
+        return cells.get(game.getRow(move), game.getCol(move));
     }
 }
@@ -0,0 +1,178 @@
+package Cucci_Bindi;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-analyses finished games and reports the moves whose score drop exceeds a threshold.
+ * <p>
+ * Every position of every record is searched at a fixed depth on a fork-join pool, and the
+ * played move is scored at the same depth: the drop is the difference between the two, from
+ * the mover's point of view. Reports are printed as soon as each game is complete. The
+ * large-board candidate zone is disabled, so the searches consider every legal move.
+ * <p>
+ * Usage: Analyzer [-d depth] [-t threshold] [-j threads] &lt;record file&gt;...
+ */
+public class Analyzer {
+
+    private int depth = 4;
+    private int threshold = 64;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private final List<Path> files = new ArrayList<>();
+
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong mistakes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private class GameTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long index;
+        private final GameRecord record;
+        private final int[] drops, bestMoves;
+
+        GameTask(long index, GameRecord record) {
+            this.index = index;
+            this.record = record;
+            this.drops = new int[record.length()];
+            this.bestMoves = new int[record.length()];
+        }
+
+        @Override
+        protected void compute() {
+            List<PositionTask> tasks = new ArrayList<>();
+            for (int ply = 0; ply < record.length(); ply++)
+                tasks.add(new PositionTask(this, ply));
+            invokeAll(tasks);
+            report();
+        }
+
+        private void report() {
+            Game game = record.replay(0);
+            StringBuilder out = new StringBuilder();
+            for (int ply = 0; ply < record.length(); ply++) {
+                int mover = game.getTurn();
+                int move = record.getMove(ply);
+                int drop = drops[ply];
+                if (drop > threshold) {
+                    mistakes.incrementAndGet();
+                    out.append("game ").append(index)
+                            .append(" ply ").append(ply)
+                            .append(" player ").append(mover == Game.PLAYER_1 ? "P1" : "P2")
+                            .append(" played ").append(game.getRow(move)).append(',').append(game.getCol(move))
+                            .append(" best ").append(game.getRow(bestMoves[ply])).append(',').append(game.getCol(bestMoves[ply]))
+                            .append(" drop ").append(drop)
+                            .append(System.lineSeparator());
+                }
+                game.playMove(move);
+            }
+            positions.addAndGet(record.length());
+            if (out.length() > 0)
+                synchronized (System.out) {
+                    System.out.print(out);
+                }
+        }
+    }
+
+    private class PositionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GameTask game;
+        private final int ply;
+
+        PositionTask(GameTask game, int ply) {
+            this.game = game;
+            this.ply = ply;
+        }
+
+        @Override
+        protected void compute() {
+            Game position = game.record.replay(ply);
+            position.setCandidateRadius(0); // every legal move, also on large boards
+            AISearcher searcher = new AISearcher(position, 0);
+            searcher.setSelective(false); // drops need exact scores
+            int played = game.record.getMove(ply);
+            try {
+                Game.IntegerPair best = searcher.search(depth);
+                game.bestMoves[ply] = best.move();
+                game.drops[ply] = best.move() == played ? 0 : best.score() - searcher.scoreMove(played, depth);
+            } catch (TimeoutException e) {
+                throw new CancellationException("Analysis interrupted");
+            }
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        // Bounds the games in flight, so that records are streamed rather than loaded at once
+        Semaphore inFlight = new Semaphore(4 * threads);
+        long start = System.nanoTime(), games = 0;
+
+        for (Path file : files) {
+            try (GameRecordReader reader = new GameRecordReader(file)) {
+                for (GameRecord record = reader.next(); record != null; record = reader.next()) {
+                    inFlight.acquire();
+                    GameTask task = new GameTask(games++, record);
+                    pool.execute(() -> {
+                        try {
+                            task.invoke();
+                        } catch (CancellationException e) {
+                            failures.incrementAndGet();
+                            System.err.println("Game " + task.index + " not analysed: " + e.getMessage());
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+        }
+        inFlight.acquire(4 * threads);
+        pool.shutdown();
+
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.err.println("Analysed " + (games - failures.get()) + " games, " + positions + " positions, " + mistakes
+                + " mistakes in " + String.format("%.1f", secs) + " s" + (failures.get() > 0 ? ", " + failures + " games failed" : ""));
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                files.add(Path.of(args[i]));
+                continue;
+            }
+            if (args[i].length() != 2 || i + 1 >= args.length)
+                throw new IllegalArgumentException("Illegal argument: " + args[i]);
+            String value = args[++i];
+            switch (args[i - 1].charAt(1)) {
+                case 'd' -> depth = Integer.parseInt(value);
+                case 't' -> threshold = Integer.parseInt(value);
+                case 'j' -> threads = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Illegal argument: " + args[i - 1]);
+            }
+        }
+        if (files.isEmpty())
+            throw new IllegalArgumentException("Expected at least one record file");
+        if (depth <= 0 || threads <= 0)
+            throw new IllegalArgumentException("Arguments must be larger than 0");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Analyzer analyzer = new Analyzer();
+        try {
+            analyzer.parseArgs(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: Analyzer [-d depth] [-t threshold] [-j threads] <record file>...");
+            System.exit(1);
+        }
+        analyzer.run();
+    }
+}
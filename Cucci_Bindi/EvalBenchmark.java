@@ -0,0 +1,88 @@
+package Cucci_Bindi;
+
+import java.util.Random;
+
+/**
+ * Compares the scalar and the vector ({@link WindowScorer}) evaluation on random positions:
+ * both must agree, and the time per evaluation is printed for each.
+ * <p>
+ * Run with <code>--add-modules jdk.incubator.vector</code>, otherwise only the scalar path is
+ * timed. Usage: EvalBenchmark [M N K]; the default runs 15,15,5 and 19,19,5.
+ */
+public class EvalBenchmark {
+
+    private static final int POSITIONS = 256;
+    private static final int ROUNDS = 200;
+    private static final int[] STONES = {8, 32, 96};
+
+    private static Game[] positions(int M, int N, int K, int stones, Random rand) {
+        Game[] games = new Game[POSITIONS];
+        for (int p = 0; p < POSITIONS; p++) {
+            Game game = new Game(M, N, K);
+            game.setCandidateRadius(0);
+            for (int placed = 0; placed < Math.min(stones, M * N); ) {
+                int move = rand.nextInt(M * N);
+                if (game.checkIfEmpty(move)) {
+                    game.playMove(move);
+                    placed++;
+                }
+            }
+            games[p] = game;
+        }
+        return games;
+    }
+
+    private interface Scorer {
+        int score(Game game);
+    }
+
+    // Nanoseconds per evaluation, after a warm-up pass
+    private static double time(Game[] games, Scorer scorer) {
+        long sink = 0;
+        for (int r = 0; r < ROUNDS / 4; r++) for (Game game : games) sink += scorer.score(game);
+        long start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) for (Game game : games) sink += scorer.score(game);
+        double nanos = (double) (System.nanoTime() - start) / ROUNDS / games.length;
+        return sink == 42 ? -nanos : nanos; // keeps the loop alive
+    }
+
+    private static boolean run(int M, int N, int K) {
+        PatternEvaluator evaluator = PatternEvaluator.forTable(WindowTable.forGeometry(M, N, K));
+        WindowScorer vector = WindowScorer.vector(evaluator.getTable(), evaluator.getWeights());
+        Random rand = new Random(M * 1000L + N);
+        boolean ok = true;
+
+        for (int stones : STONES) {
+            Game[] games = positions(M, N, K, stones, rand);
+            for (Game game : games)
+                if (vector != null && vector.score(game) != evaluator.evaluateScalar(game)) {
+                    System.out.println("MISMATCH at " + M + "," + N + "," + K + " with " + stones + " stones");
+                    ok = false;
+                    break;
+                }
+            double scalar = time(games, evaluator::evaluateScalar);
+            String line = String.format("%d,%d,%d %3d stones: scalar %8.1f ns", M, N, K, stones, scalar);
+            if (vector != null) {
+                double vectorized = time(games, vector::score);
+                line += String.format("   vector %8.1f ns   x%.2f", vectorized, scalar / vectorized);
+            } else {
+                line += "   vector unavailable";
+            }
+            System.out.println(line);
+        }
+        return ok;
+    }
+
+    public static void main(String[] args) {
+        boolean ok;
+        if (args.length == 3) {
+            ok = run(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        } else if (args.length == 0) {
+            ok = run(15, 15, 5) & run(19, 19, 5);
+        } else {
+            System.err.println("Usage: EvalBenchmark [M N K]");
+            ok = false;
+        }
+        if (!ok) System.exit(1);
+    }
+}
@@ -0,0 +1,66 @@
+package Cucci_Bindi;
+
+/**
+ * Direct-mapped cache of static evaluations, keyed by {@link Game#getHash()}.
+ * <p>
+ * Each entry is a single <code>long</code>: the upper 48 bits of the key, used to verify
+ * hits, and the 16-bit score. Colliding positions simply replace each other. Not thread-safe:
+ * use one cache per searching thread.
+ */
+public class EvalCache {
+
+    public static final int MISS = Integer.MIN_VALUE;
+
+    private static final long SCORE_MASK = 0xFFFFL;
+
+    private final long[] entries;
+    private final int mask;
+    private long hits, misses;
+
+    // Largest power-of-two number of entries fitting the budget
+    public EvalCache(long budgetBytes) {
+        long capacity = Long.highestOneBit(Math.max(budgetBytes / Long.BYTES, 1));
+        capacity = Math.min(capacity, 1 << 30);
+        entries = new long[(int) capacity];
+        mask = (int) capacity - 1;
+    }
+
+    public static EvalCache ofMegabytes(int megabytes) {
+        return megabytes > 0 ? new EvalCache((long) megabytes << 20) : null;
+    }
+
+    // Cached score of the position, or MISS
+    public int probe(long key) {
+        long entry = entries[(int) key & mask];
+        if (entry != 0 && (entry & ~SCORE_MASK) == (key & ~SCORE_MASK)) {
+            hits++;
+            return (short) entry;
+        }
+        misses++;
+        return MISS;
+    }
+
+    // Scores must fit in 16 bits, as the clamped evaluations do
+    public void store(long key, int score) {
+        entries[(int) key & mask] = (key & ~SCORE_MASK) | (score & SCORE_MASK);
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    @Override
+    public String toString() {
+        long probes = hits + misses;
+        return String.format("%d entries, %d hits, %d misses (%.1f%% hits)", entries.length, hits, misses,
+                probes == 0 ? 0.0 : 100.0 * hits / probes);
+    }
+}
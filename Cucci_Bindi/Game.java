@@ -1,13 +1,15 @@
 package Cucci_Bindi;
 
 import mnkgame.MNKCell;
+import mnkgame.MNKZobrist;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 public class Game implements Cloneable {
 
-    record IntegerPair(int move, int score) {
+    public record IntegerPair(int move, int score) {
     }
 
     public static final int MAX_SCORE = 1 << 14;
@@ -20,11 +22,44 @@ public class Game implements Cloneable {
     // Constant representing the second player.
     public static final int PLAYER_2 = -PLAYER_1;
 
+    // Boards with at least this many cells only generate moves near the stones
+    public static final int LARGE_BOARD_CELLS = 400;
+    public static final int LARGE_BOARD_RADIUS = 2;
+
     // Instance variables
     private final int columns, rows, K, size;
     private int[] board;
     private int[] history;
 
+    // Stones on each row, column, diagonal (i + j) and anti-diagonal (i - j + columns - 1)
+    private int[] rowStones, columnStones, diagonalStones, antiDiagonalStones;
+
+    // Pattern code of every K-window, and the cells as digits (0 empty, 1 first player,
+    // 2 second player) followed by the wall digit used for flanks outside the board
+    private final WindowTable windows;
+    private int[] windowCodes;
+    private int[] digits;
+    private int[] threats; // windows threatening for the first and the second player
+    private int[] openWindows; // windows the first and the second player can still complete
+    private int[] liveWindows; // windows of each WindowTable line open for either player
+
+    // Line planes (see WindowTable): 1 where the first player, the second player or nobody
+    // owns the cell, 0 elsewhere and on the padding
+    private byte[] firstPlane, secondPlane, emptyPlane;
+
+    // Large-board mode: empty cells within candidateRadius of a stone, as an index-swap set
+    private int candidateRadius;
+    private int[] nearStones; // stones within candidateRadius of each cell
+    private int[] candidates, candidatePos;
+    private int candidateCount;
+
+    // Zobrist keys of the stones of each player, and the key of the current position
+    private final long[] zobrist;
+    private long hash;
+
+    // Hidden layer of the neural evaluation, kept in step with the stones; null if unused
+    private NnueAccumulator accumulator;
+
     private int ply; // number of past piece placements
     private int turn; // current player
     private int winner; // winning player
@@ -40,8 +75,74 @@ public class Game implements Cloneable {
         history = new int[size];
         board = new int[size];
 
+        rowStones = new int[rows];
+        columnStones = new int[columns];
+        diagonalStones = new int[getDiagonals()];
+        antiDiagonalStones = new int[getDiagonals()];
+
+        windows = WindowTable.forGeometry(rows, columns, K);
+        windowCodes = new int[windows.windows];
+        digits = new int[size + 1];
+        digits[windows.WALL] = PatternEvaluator.WALL_DIGIT;
+        threats = new int[2];
+        openWindows = new int[]{windows.windows, windows.windows};
+        liveWindows = new int[windows.lines];
+        for (int l = 0; l < windows.lines; l++) liveWindows[l] = windows.lineStart[l + 1] - windows.lineStart[l];
+        firstPlane = new byte[windows.windowStarts.length];
+        secondPlane = new byte[windows.windowStarts.length];
+        emptyPlane = new byte[windows.windowStarts.length];
+        for (int position : windows.cellPlane) if (position >= 0) emptyPlane[position] = 1;
+
+        zobrist = zobristKeys(rows, columns);
+        hash = 0;
+
         winner = PLAYER_NONE;
         ply = 0;
+
+        setCandidateRadius(size >= LARGE_BOARD_CELLS ? LARGE_BOARD_RADIUS : 0);
+    }
+
+    // The keys of MNKZobrist, so that getHash() equals MNKBoard.zobristKey() for the same
+    // position: even indexes for the first player
+    private static long[] zobristKeys(int rows, int columns) {
+        MNKZobrist keys = MNKZobrist.forGeometry(rows, columns);
+        long[] zobrist = new long[2 * rows * columns];
+        for (int cell = 0; cell < rows * columns; cell++) {
+            zobrist[2 * cell] = keys.key(cell, 0);
+            zobrist[2 * cell + 1] = keys.key(cell, 1);
+        }
+        return zobrist;
+    }
+
+    // Key of the current position: equal positions have equal keys
+    public long getHash() {
+        return hash;
+    }
+
+    // Key of the position after the player to move plays move
+    public long getHashAfter(int move) {
+        return hash ^ zobrist[2 * move + (turn == PLAYER_1 ? 0 : 1)];
+    }
+
+    // Restricts move generation to the empty cells within radius of a stone; 0 disables it
+    public void setCandidateRadius(int radius) {
+        candidateRadius = radius;
+        if (radius <= 0) {
+            nearStones = candidates = candidatePos = null;
+            candidateCount = 0;
+            return;
+        }
+        nearStones = new int[size];
+        candidates = new int[size];
+        candidatePos = new int[size];
+        Arrays.fill(candidatePos, -1);
+        candidateCount = 0;
+        for (int i = 0; i < ply; i++)
+            addStoneToZone(history[i]);
+    }
+
+    public boolean isLargeBoard() {
+        return candidateRadius > 0;
     }
 
     @Override
@@ -52,6 +153,24 @@ public class Game implements Cloneable {
             System.arraycopy(board, 0, copy.board, 0, board.length);
             copy.history = history.clone();
             System.arraycopy(history, 0, copy.history, 0, history.length);
+            copy.rowStones = rowStones.clone();
+            copy.columnStones = columnStones.clone();
+            copy.diagonalStones = diagonalStones.clone();
+            copy.antiDiagonalStones = antiDiagonalStones.clone();
+            copy.windowCodes = windowCodes.clone();
+            copy.digits = digits.clone();
+            copy.threats = threats.clone();
+            copy.openWindows = openWindows.clone();
+            copy.liveWindows = liveWindows.clone();
+            copy.firstPlane = firstPlane.clone();
+            copy.secondPlane = secondPlane.clone();
+            copy.emptyPlane = emptyPlane.clone();
+            if (candidateRadius > 0) {
+                copy.nearStones = nearStones.clone();
+                copy.candidates = candidates.clone();
+                copy.candidatePos = candidatePos.clone();
+            }
+            if (accumulator != null) copy.accumulator = accumulator.clone();
             copy.turn = turn;
             copy.ply = ply;
             return copy;
@@ -72,6 +191,10 @@ public class Game implements Cloneable {
         return K;
     }
 
+    public int getTurn() {
+        return turn;
+    }
+
     public int maxDepth() {
         return size - ply;
     }
@@ -103,6 +226,11 @@ public class Game implements Cloneable {
     public void playMove(int move) {
         board[move] = turn;
         history[ply++] = move;
+        hash ^= zobrist[2 * move + (turn == PLAYER_1 ? 0 : 1)];
+        updateLineStones(move, 1);
+        updateWindows(move, turn, 1);
+        if (candidateRadius > 0) addStoneToZone(move);
+        if (accumulator != null) accumulator.add(move, turn);
         winner = isWinningCell(getRow(move), getCol(move));
         turn = -turn;
     }
@@ -110,10 +238,182 @@ public class Game implements Cloneable {
     public void unPlayMove() {
         int index = history[--ply];
         board[index] = PLAYER_NONE;
+        hash ^= zobrist[2 * index + (turn == PLAYER_1 ? 1 : 0)];
+        updateLineStones(index, -1);
+        updateWindows(index, -turn, -1);
+        if (candidateRadius > 0) removeStoneFromZone(index);
+        if (accumulator != null) accumulator.remove(index, -turn);
         winner = PLAYER_NONE;
         turn = -turn;
     }
 
+    // Passes the turn, for null-move pruning: the hash only depends on the stones
+    public void playNullMove() {
+        turn = -turn;
+    }
+
+    public void unPlayNullMove() {
+        turn = -turn;
+    }
+
+    private void updateLineStones(int move, int delta) {
+        int row = getRow(move), col = getCol(move);
+        rowStones[row] += delta;
+        columnStones[col] += delta;
+        diagonalStones[row + col] += delta;
+        antiDiagonalStones[row - col + columns - 1] += delta;
+    }
+
+    private void updateWindows(int move, int player, int delta) {
+        final int[] weight = player == PLAYER_1 ? windows.p1Weight : windows.p2Weight;
+        final int[] threatOf = windows.threatOf, openOf = windows.openOf;
+        for (int slot = windows.cellStart[move]; slot < windows.cellStart[move + 1]; slot++) {
+            int window = windows.cellWindow[slot];
+            int codeBefore = windowCodes[window];
+            int codeAfter = windowCodes[window] += delta * weight[slot];
+            int before = threatOf[codeBefore], after = threatOf[codeAfter];
+            if (before != after) {
+                if (before != PLAYER_NONE) threats[before == PLAYER_1 ? 0 : 1]--;
+                if (after != PLAYER_NONE) threats[after == PLAYER_1 ? 0 : 1]++;
+            }
+            // A stone only closes windows to the opponent, and removing it may reopen them
+            int openBefore = openOf[codeBefore], openAfter = openOf[codeAfter];
+            if (openBefore != openAfter) {
+                openWindows[0] += (openAfter & WindowTable.OPEN_FIRST) - (openBefore & WindowTable.OPEN_FIRST);
+                openWindows[1] += ((openAfter & WindowTable.OPEN_SECOND) - (openBefore & WindowTable.OPEN_SECOND)) >> 1;
+                if (openBefore == 0 || openAfter == 0) liveWindows[windows.windowLine[window]] += openAfter == 0 ? -1 : 1;
+            }
+        }
+        digits[move] = delta < 0 ? PatternEvaluator.EMPTY_DIGIT
+                : player == PLAYER_1 ? PatternEvaluator.FIRST_DIGIT : PatternEvaluator.SECOND_DIGIT;
+
+        final byte[] plane = player == PLAYER_1 ? firstPlane : secondPlane;
+        final byte stone = (byte) (delta > 0 ? 1 : 0);
+        for (int type = 0; type < 4; type++) {
+            int position = windows.cellPlane[4 * move + type];
+            if (position < 0) continue;
+            plane[position] = stone;
+            emptyPlane[position] = (byte) (1 - stone);
+        }
+    }
+
+    // Windows holding at least K - 2 stones of the player and none of the opponent
+    public int getThreats(int player) {
+        return threats[player == PLAYER_1 ? 0 : 1];
+    }
+
+    // Windows holding no stone of the opponent of the player
+    public int getOpenWindows(int player) {
+        return openWindows[player == PLAYER_1 ? 0 : 1];
+    }
+
+    // True if no window can be completed by either player: without a winner, a forced draw
+    public boolean isDeadDraw() {
+        return openWindows[0] == 0 && openWindows[1] == 0;
+    }
+
+    // Windows of a WindowTable line still open for either player: 0 if the line is blocked
+    int getLiveWindows(int line) {
+        return liveWindows[line];
+    }
+
+    // Keeps the accumulator in step with the moves from now on, after loading the stones
+    public void setAccumulator(NnueAccumulator accumulator) {
+        this.accumulator = accumulator;
+        if (accumulator != null) accumulator.refresh(this);
+    }
+
+    public NnueAccumulator getAccumulator() {
+        return accumulator;
+    }
+
+    public WindowTable getWindowTable() {
+        return windows;
+    }
+
+    int[] getWindowCodes() {
+        return windowCodes;
+    }
+
+    int[] getDigits() {
+        return digits;
+    }
+
+    // Line planes, for vector evaluators: shared with the game, not to be modified
+    public byte[] getFirstPlane() {
+        return firstPlane;
+    }
+
+    public byte[] getSecondPlane() {
+        return secondPlane;
+    }
+
+    public byte[] getEmptyPlane() {
+        return emptyPlane;
+    }
+
+    // Stones on a line of the given WindowTable type
+    int getLineStones(int type, int index) {
+        return switch (type) {
+            case 0 -> rowStones[index];
+            case 1 -> columnStones[index];
+            case 2 -> diagonalStones[index];
+            default -> antiDiagonalStones[index];
+        };
+    }
+
+    public int getRowStones(int row) {
+        return rowStones[row];
+    }
+
+    public int getColumnStones(int col) {
+        return columnStones[col];
+    }
+
+    // Stones on the line read by getDiagonalSquares(diag)
+    public int getDiagonalStones(int diag) {
+        return diagonalStones[diag];
+    }
+
+    // Stones on the line read by getAntiDiagonalSquares(diag)
+    public int getAntiDiagonalStones(int diag) {
+        return antiDiagonalStones[diag];
+    }
+
+    private void addStoneToZone(int move) {
+        removeCandidate(move);
+        int row = getRow(move), col = getCol(move);
+        for (int i = Math.max(0, row - candidateRadius); i <= Math.min(rows - 1, row + candidateRadius); i++)
+            for (int j = Math.max(0, col - candidateRadius); j <= Math.min(columns - 1, col + candidateRadius); j++) {
+                int cell = getMove(i, j);
+                if (cell != move && nearStones[cell]++ == 0 && board[cell] == PLAYER_NONE) addCandidate(cell);
+            }
+    }
+
+    private void removeStoneFromZone(int move) {
+        int row = getRow(move), col = getCol(move);
+        for (int i = Math.max(0, row - candidateRadius); i <= Math.min(rows - 1, row + candidateRadius); i++)
+            for (int j = Math.max(0, col - candidateRadius); j <= Math.min(columns - 1, col + candidateRadius); j++) {
+                int cell = getMove(i, j);
+                if (cell != move && --nearStones[cell] == 0) removeCandidate(cell);
+            }
+        if (nearStones[move] > 0) addCandidate(move);
+    }
+
+    private void addCandidate(int cell) {
+        candidatePos[cell] = candidateCount;
+        candidates[candidateCount++] = cell;
+    }
+
+    private void removeCandidate(int cell) {
+        int pos = candidatePos[cell];
+        if (pos < 0) return;
+        int last = candidates[--candidateCount];
+        candidates[pos] = last;
+        candidatePos[last] = pos;
+        candidatePos[cell] = -1;
+    }
+
     public int[] getCellsForRow(int row) {
         int[] list = new int[columns];
         for (int col = 0; col < columns; col++)
@@ -137,30 +437,18 @@ public class Game implements Cloneable {
     }
 
     public int[] getDiagonalSquares(int k) {
-        int[][] board = getBoard();
         int[] list = new int[getDiagonalSize(k)];
         int idx = 0;
-        for (int j = 0; j <= k; j++) {
-            int i = k - j;
-            if (i < rows && j < columns) {
-                list[idx] = board[i][j];
-                idx++;
-            }
-        }
+        for (int j = Math.max(0, k - rows + 1); j <= Math.min(k, columns - 1); j++)
+            list[idx++] = board[getMove(k - j, j)];
         return list;
     }
 
     public int[] getAntiDiagonalSquares(int k) {
-        int[][] board = getBoard();
         int[] list = new int[getDiagonalSize(k)];
         int idx = 0;
-        for (int j = 0; j <= k; j++) {
-            int i = k - j;
-            if (i < rows && j < columns) {
-                list[idx] = board[i][columns - 1 - j];
-                idx++;
-            }
-        }
+        for (int j = Math.max(0, k - rows + 1); j <= Math.min(k, columns - 1); j++)
+            list[idx++] = board[getMove(k - j, columns - 1 - j)];
         return list;
     }
 
@@ -177,8 +465,9 @@ public class Game implements Cloneable {
     }
 
     private int isWinningCell(int i, int j) {
-        int[][] B = getBoard();
-        int s = B[i][j];
+        int[] B = board;
+        int c = getMove(i, j);
+        int s = B[c];
         int n;
 
         // Useless pedantic check
@@ -186,33 +475,52 @@ public class Game implements Cloneable {
 
         // Horizontal check
         n = 1;
-        for (int k = 1; j - k >= 0 && B[i][j - k] == s; k++) n++; // backward check
-        for (int k = 1; j + k < columns && B[i][j + k] == s; k++) n++; // forward check
+        for (int k = 1; j - k >= 0 && B[c - k] == s; k++) n++; // backward check
+        for (int k = 1; j + k < columns && B[c + k] == s; k++) n++; // forward check
         if (n >= K) return turn;
 
         // Vertical check
         n = 1;
-        for (int k = 1; i - k >= 0 && B[i - k][j] == s; k++) n++; // backward check
-        for (int k = 1; i + k < rows && B[i + k][j] == s; k++) n++; // forward check
+        for (int k = 1; i - k >= 0 && B[c - k * columns] == s; k++) n++; // backward check
+        for (int k = 1; i + k < rows && B[c + k * columns] == s; k++) n++; // forward check
         if (n >= K) return turn;
 
 
         // Diagonal check
         n = 1;
-        for (int k = 1; i - k >= 0 && j - k >= 0 && B[i - k][j - k] == s; k++) n++; // backward check
-        for (int k = 1; i + k < rows && j + k < columns && B[i + k][j + k] == s; k++) n++; // forward check
+        for (int k = 1; i - k >= 0 && j - k >= 0 && B[c - k * (columns + 1)] == s; k++) n++; // backward check
+        for (int k = 1; i + k < rows && j + k < columns && B[c + k * (columns + 1)] == s; k++) n++; // forward check
         if (n >= K) return turn;
 
         // Anti-diagonal check
         n = 1;
-        for (int k = 1; i - k >= 0 && j + k < columns && B[i - k][j + k] == s; k++) n++; // backward check
-        for (int k = 1; i + k < rows && j - k >= 0 && B[i + k][j - k] == s; k++) n++; // backward check
+        for (int k = 1; i - k >= 0 && j + k < columns && B[c - k * (columns - 1)] == s; k++) n++; // backward check
+        for (int k = 1; i + k < rows && j - k >= 0 && B[c + k * (columns - 1)] == s; k++) n++; // backward check
         if (n >= K) return turn;
 
         return PLAYER_NONE;
     }
 
     public Iterable<Integer> generateMoves() {
+        if (candidateRadius > 0 && (candidateCount > 0 || ply == 0)) {
+            // Snapshot, since the zone changes while the moves are searched
+            final int[] moves = ply == 0 ? new int[]{getMove(rows / 2, columns / 2)}
+                    : Arrays.copyOf(candidates, candidateCount);
+            return () -> new Iterator<>() {
+                int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < moves.length;
+                }
+
+                @Override
+                public Integer next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return moves[index++];
+                }
+            };
+        }
         return () -> new Iterator<>() {
             int index = 0;
 
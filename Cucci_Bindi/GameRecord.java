@@ -0,0 +1,110 @@
+package Cucci_Bindi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A finished game in the compact binary format written by {@link GameRecordWriter}.
+ * <p>
+ * Layout, big-endian: record length (int, excluding itself), M, N, K (short), result (byte),
+ * move count (short), then for each move the cell index (int) and the score the engine gave
+ * it from the mover's point of view (short).
+ */
+public final class GameRecord {
+
+    public static final byte DRAW = 0;
+    public static final byte WIN_P1 = 1;
+    public static final byte WIN_P2 = 2;
+
+    private static final int HEADER_BYTES = 2 + 2 + 2 + 1 + 2;
+    private static final int MOVE_BYTES = 4 + 2;
+
+    public final int M, N, K;
+    public final byte result;
+    private final int[] moves;
+    private final short[] scores;
+
+    public GameRecord(int M, int N, int K, byte result, int[] moves, int[] scores) {
+        if (moves.length != scores.length)
+            throw new IllegalArgumentException("One score per move is required");
+        this.M = M;
+        this.N = N;
+        this.K = K;
+        this.result = result;
+        this.moves = moves.clone();
+        this.scores = new short[scores.length];
+        for (int i = 0; i < scores.length; i++)
+            this.scores[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, scores[i]));
+    }
+
+    private GameRecord(int M, int N, int K, byte result, int[] moves, short[] scores) {
+        this.M = M;
+        this.N = N;
+        this.K = K;
+        this.result = result;
+        this.moves = moves;
+        this.scores = scores;
+    }
+
+    public int length() {
+        return moves.length;
+    }
+
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    public int getScore(int ply) {
+        return scores[ply];
+    }
+
+    // Result as a Game player constant, PLAYER_NONE for draws
+    public int getWinner() {
+        return result == WIN_P1 ? Game.PLAYER_1 : result == WIN_P2 ? Game.PLAYER_2 : Game.PLAYER_NONE;
+    }
+
+    public static byte resultOf(Game game) {
+        int winner = game.getWinner();
+        return winner == Game.PLAYER_1 ? WIN_P1 : winner == Game.PLAYER_2 ? WIN_P2 : DRAW;
+    }
+
+    // Replays the record on a fresh board
+    public Game replay(int plies) {
+        Game game = new Game(M, N, K);
+        for (int i = 0; i < plies; i++)
+            game.playMove(moves[i]);
+        return game;
+    }
+
+    public int encodedSize() {
+        return 4 + HEADER_BYTES + MOVE_BYTES * moves.length;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(encodedSize() - 4);
+        buffer.putShort((short) M).putShort((short) N).putShort((short) K);
+        buffer.put(result);
+        buffer.putShort((short) moves.length);
+        for (int i = 0; i < moves.length; i++) {
+            buffer.putInt(moves[i]);
+            buffer.putShort(scores[i]);
+        }
+    }
+
+    // Reads the record starting at the buffer position, which must hold it entirely
+    public static GameRecord readFrom(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        int M = buffer.getShort(), N = buffer.getShort(), K = buffer.getShort();
+        byte result = buffer.get();
+        int count = buffer.getShort() & 0xFFFF;
+        if (length != HEADER_BYTES + MOVE_BYTES * count)
+            throw new IllegalStateException("Corrupted game record");
+
+        int[] moves = new int[count];
+        short[] scores = new short[count];
+        for (int i = 0; i < count; i++) {
+            moves[i] = buffer.getInt();
+            scores[i] = buffer.getShort();
+        }
+        return new GameRecord(M, N, K, result, moves, scores);
+    }
+}
@@ -0,0 +1,59 @@
+package Cucci_Bindi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the {@link GameRecord}s of a file written by {@link GameRecordWriter}.
+ */
+public class GameRecordReader implements Closeable {
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(GameRecordWriter.BUFFER_SIZE);
+    private boolean eof;
+
+    public GameRecordReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.flip();
+        if (!fill(4) || buffer.getInt() != GameRecordWriter.MAGIC) {
+            channel.close();
+            throw new IOException(file + " is not a game record file");
+        }
+    }
+
+    // Returns the next record, or null at the end of the file
+    public GameRecord next() throws IOException {
+        if (!fill(4)) {
+            if (buffer.hasRemaining()) throw new IOException("Truncated game record");
+            return null;
+        }
+        int length = buffer.getInt(buffer.position());
+        if (!fill(4 + length)) throw new IOException("Truncated game record");
+        return GameRecord.readFrom(buffer);
+    }
+
+    // Makes sure that at least n bytes are available, refilling the buffer from the channel
+    private boolean fill(int n) throws IOException {
+        if (buffer.remaining() >= n) return true;
+        if (n > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(n);
+            larger.put(buffer);
+            larger.flip();
+            buffer = larger;
+        }
+        buffer.compact();
+        while (!eof && buffer.position() < n)
+            if (channel.read(buffer) < 0) eof = true;
+        buffer.flip();
+        return buffer.remaining() >= n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,58 @@
+package Cucci_Bindi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends {@link GameRecord}s to a file through a buffered channel. Safe to share between threads.
+ */
+public class GameRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x4D4E4B52; // "MNKR"
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long written;
+
+    public GameRecordWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC);
+    }
+
+    public synchronized void write(GameRecord record) throws IOException {
+        int size = record.encodedSize();
+        if (buffer.remaining() < size)
+            flush();
+        if (buffer.remaining() < size) {
+            ByteBuffer large = ByteBuffer.allocate(size);
+            record.writeTo(large);
+            large.flip();
+            while (large.hasRemaining()) channel.write(large);
+        } else {
+            record.writeTo(buffer);
+        }
+        written++;
+    }
+
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,62 @@
+package Cucci_Bindi;
+
+/**
+ * Hidden layer of a {@link NnueNetwork} for the stones of one {@link Game}: attached with
+ * {@link Game#setAccumulator}, it is updated by every move and take-back, so evaluating a
+ * position only costs the output layer.
+ */
+public class NnueAccumulator implements Cloneable {
+
+    private final NnueNetwork network;
+    private int[] values;
+
+    NnueAccumulator(NnueNetwork network) {
+        this.network = network;
+        this.values = network.hiddenBias.clone();
+    }
+
+    public NnueNetwork getNetwork() {
+        return network;
+    }
+
+    // Recomputes the layer from the stones of the game
+    public void refresh(Game game) {
+        System.arraycopy(network.hiddenBias, 0, values, 0, values.length);
+        int[][] board = game.getBoard();
+        for (int row = 0; row < board.length; row++)
+            for (int col = 0; col < board[row].length; col++)
+                if (board[row][col] != Game.PLAYER_NONE) add(game.getMove(row, col), board[row][col]);
+    }
+
+    void add(int cell, int player) {
+        update(cell, player, 1);
+    }
+
+    void remove(int cell, int player) {
+        update(cell, player, -1);
+    }
+
+    private void update(int cell, int player, int sign) {
+        final int hidden = network.hidden;
+        final int[] weights = network.hiddenWeights;
+        final int row = (2 * cell + (player == Game.PLAYER_1 ? 0 : 1)) * hidden;
+        if (sign > 0) for (int h = 0; h < hidden; h++) values[h] += weights[row + h];
+        else for (int h = 0; h < hidden; h++) values[h] -= weights[row + h];
+    }
+
+    // Score from the point of view of the first player
+    public int evaluate() {
+        return network.evaluate(values);
+    }
+
+    @Override
+    public NnueAccumulator clone() {
+        try {
+            NnueAccumulator copy = (NnueAccumulator) super.clone();
+            copy.values = values.clone();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e.toString());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package Cucci_Bindi;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports the positions of self-play game records as training data for {@link NnueTrainer}.
+ * <p>
+ * The output is text: a header line <code>nnue-data M N K</code>, then one line per position
+ * with the result of its game (1, 0, -1 for the first player), the search score of the
+ * position for the first player, and the cells of the first and of the second player, comma
+ * separated, <code>-</code> when there are none. Positions within the opening plies, whose
+ * moves were random, are skipped, as are records of another geometry than the first one.
+ * <p>
+ * Usage: NnueData [-p plies] [-o output file] &lt;record file&gt;...
+ */
+public class NnueData {
+
+    private int skipPlies = 2;
+    private Path output = Path.of("nnue-data.txt");
+    private final List<Path> files = new ArrayList<>();
+
+    public void run() throws IOException {
+        int M = -1, N = -1, K = -1;
+        long positions = 0, skipped = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(output)) {
+            for (Path file : files) {
+                try (GameRecordReader reader = new GameRecordReader(file)) {
+                    for (GameRecord record = reader.next(); record != null; record = reader.next()) {
+                        if (M < 0) {
+                            M = record.M;
+                            N = record.N;
+                            K = record.K;
+                            out.write("nnue-data " + M + " " + N + " " + K);
+                            out.newLine();
+                        }
+                        if (record.M != M || record.N != N || record.K != K) {
+                            skipped++;
+                            continue;
+                        }
+                        positions += export(record, out);
+                    }
+                }
+            }
+        }
+        System.out.println("Positions : " + positions + (skipped > 0 ? " (" + skipped + " games of another geometry skipped)" : ""));
+        System.out.println("Output    : " + output);
+    }
+
+    // Writes the positions of a record, before each of its moves past the opening
+    private long export(GameRecord record, BufferedWriter out) throws IOException {
+        StringBuilder first = new StringBuilder(), second = new StringBuilder();
+        int result = record.getWinner() == Game.PLAYER_1 ? 1 : record.getWinner() == Game.PLAYER_2 ? -1 : 0;
+        long positions = 0;
+        for (int ply = 0; ply < record.length(); ply++) {
+            if (ply >= skipPlies) {
+                int score = ply % 2 == 0 ? record.getScore(ply) : -record.getScore(ply);
+                out.write(result + " " + score + " " + (first.length() == 0 ? "-" : first) + " "
+                        + (second.length() == 0 ? "-" : second));
+                out.newLine();
+                positions++;
+            }
+            StringBuilder cells = ply % 2 == 0 ? first : second;
+            cells.append(cells.length() == 0 ? "" : ",").append(record.getMove(ply));
+        }
+        return positions;
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                files.add(Path.of(args[i]));
+                continue;
+            }
+            if (args[i].length() != 2 || i + 1 >= args.length)
+                throw new IllegalArgumentException("Illegal argument: " + args[i]);
+            String value = args[++i];
+            switch (args[i - 1].charAt(1)) {
+                case 'p' -> skipPlies = Integer.parseInt(value);
+                case 'o' -> output = Path.of(value);
+                default -> throw new IllegalArgumentException("Illegal argument: " + args[i - 1]);
+            }
+        }
+        if (files.isEmpty())
+            throw new IllegalArgumentException("Expected at least one record file");
+    }
+
+    public static void main(String[] args) throws IOException {
+        NnueData data = new NnueData();
+        try {
+            data.parseArgs(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: NnueData [-p plies] [-o output file] <record file>...");
+            System.exit(1);
+        }
+        data.run();
+    }
+}
@@ -0,0 +1,123 @@
+package Cucci_Bindi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Small quantised neural evaluation in the NNUE style, for one (M,N,K) geometry.
+ * <p>
+ * The inputs are the stones: feature 2 * cell for a first player stone, 2 * cell + 1 for a
+ * second player one. The hidden layer is the sum of the rows of the active features plus a
+ * bias, kept incrementally by a {@link NnueAccumulator} as stones come and go, then clipped to
+ * [0, QA]. The output is the dot product of the clipped layer with the output weights, plus
+ * the output bias, divided by the divisor: a score from the point of view of the first player,
+ * in the units of {@link PatternEvaluator}.
+ * <p>
+ * Weights are integers: a float network is quantised with hidden weights times QA and output
+ * weights times QB, see {@link NnueTrainer}.
+ */
+public class NnueNetwork {
+
+    public static final int QA = 127, QB = 64;
+
+    public final int M, N, K;
+    public final int hidden;
+    final int[] hiddenWeights; // by feature * hidden + h
+    final int[] hiddenBias;
+    final int[] outputWeights;
+    final int outputBias;
+    final int divisor;
+
+    public NnueNetwork(int M, int N, int K, int[] hiddenWeights, int[] hiddenBias, int[] outputWeights,
+                       int outputBias, int divisor) {
+        int hidden = hiddenBias.length;
+        if (hidden == 0 || outputWeights.length != hidden || hiddenWeights.length != 2 * M * N * hidden)
+            throw new IllegalArgumentException("Layer sizes do not match a " + M + "," + N + " board");
+        if (divisor <= 0)
+            throw new IllegalArgumentException("The divisor must be positive");
+        this.M = M;
+        this.N = N;
+        this.K = K;
+        this.hidden = hidden;
+        this.hiddenWeights = hiddenWeights.clone();
+        this.hiddenBias = hiddenBias.clone();
+        this.outputWeights = outputWeights.clone();
+        this.outputBias = outputBias;
+        this.divisor = divisor;
+    }
+
+    // Empty-board accumulator, to attach to a game with Game.setAccumulator
+    public NnueAccumulator newAccumulator() {
+        return new NnueAccumulator(this);
+    }
+
+    // Score of a hidden layer, from the point of view of the first player
+    int evaluate(int[] values) {
+        long sum = outputBias;
+        for (int h = 0; h < hidden; h++)
+            sum += (long) Math.max(0, Math.min(QA, values[h])) * outputWeights[h];
+        return (int) (sum / divisor);
+    }
+
+    // Loads a network written by save(); null if the file is for another geometry
+    public static NnueNetwork load(Path file, int M, int N, int K) throws IOException {
+        int fileM = -1, fileN = -1, fileK = -1, divisor = 0, outputBias = 0;
+        int[] hiddenWeights = null, hiddenBias = null, outputWeights = null;
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] pair = line.split("=", 2);
+            if (pair.length != 2) throw new IOException("Malformed line in " + file + ": " + line);
+            String value = pair[1].trim();
+            switch (pair[0].trim()) {
+                case "M" -> fileM = Integer.parseInt(value);
+                case "N" -> fileN = Integer.parseInt(value);
+                case "K" -> fileK = Integer.parseInt(value);
+                case "divisor" -> divisor = Integer.parseInt(value);
+                case "outputBias" -> outputBias = Integer.parseInt(value);
+                case "hiddenWeights" -> hiddenWeights = parse(value);
+                case "hiddenBias" -> hiddenBias = parse(value);
+                case "outputWeights" -> outputWeights = parse(value);
+                default -> throw new IOException("Unknown key in " + file + ": " + pair[0]);
+            }
+        }
+        if (fileM < 0 || fileN < 0 || fileK < 0 || hiddenWeights == null || hiddenBias == null || outputWeights == null)
+            throw new IOException("Missing geometry or layers in " + file);
+        if (fileM != M || fileN != N || fileK != K) return null;
+        try {
+            return new NnueNetwork(M, N, K, hiddenWeights, hiddenBias, outputWeights, outputBias, divisor);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage());
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# NNUE network: features 2 * cell + player, " + hidden + " hidden units, QA=" + QA + " QB=" + QB);
+        lines.add("M=" + M);
+        lines.add("N=" + N);
+        lines.add("K=" + K);
+        lines.add("divisor=" + divisor);
+        lines.add("outputBias=" + outputBias);
+        lines.add("outputWeights=" + join(outputWeights));
+        lines.add("hiddenBias=" + join(hiddenBias));
+        lines.add("hiddenWeights=" + join(hiddenWeights));
+        Files.write(file, lines);
+    }
+
+    private static int[] parse(String values) {
+        String[] split = values.split("\\s+");
+        int[] parsed = new int[split.length];
+        for (int i = 0; i < split.length; i++) parsed[i] = Integer.parseInt(split[i]);
+        return parsed;
+    }
+
+    private static String join(int[] values) {
+        StringBuilder joined = new StringBuilder();
+        for (int value : values) joined.append(joined.length() == 0 ? "" : " ").append(value);
+        return joined.toString();
+    }
+}
@@ -0,0 +1,207 @@
+package Cucci_Bindi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Trains a {@link NnueNetwork} on the positions exported by {@link NnueData}, then quantises
+ * and saves it.
+ * <p>
+ * The float network has the layout of NnueNetwork, hidden units clipped to [0, 1], and its
+ * output y is read as a win probability <code>sigmoid(y)</code>. The target of a position
+ * blends its game result and its search score: <code>lambda * result + (1 - lambda) *
+ * sigmoid(scale * score)</code>, with results mapped to 1, 0.5, 0. The loss is the mean
+ * squared error, minimised with Adam over shuffled mini-batches. The saved network scores
+ * <code>y / scale</code>, in the units of the search scores.
+ * <p>
+ * Usage: NnueTrainer [-e epochs] [-r rate] [-h hidden] [-l lambda] [-k scale] [-s seed]
+ * [-o network file] &lt;data file&gt;...
+ */
+public class NnueTrainer {
+
+    private static final int BATCH = 256;
+
+    private int epochs = 20;
+    private double rate = 0.001;
+    private int hidden = 32;
+    private double lambda = 0.5;
+    private double scale = 0.005;
+    private long seed = 1;
+    private Path output = Path.of("nnue.txt");
+    private final List<Path> files = new ArrayList<>();
+
+    private int M = -1, N = -1, K = -1;
+    private final List<int[]> features = new ArrayList<>();
+    private final List<Double> targets = new ArrayList<>();
+
+    // Float network, hidden weights by feature * hidden + h
+    private double[] w1, b1, w2;
+    private double b2;
+
+    private void load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        String[] header = lines.isEmpty() ? new String[0] : lines.get(0).trim().split("\\s+");
+        if (header.length != 4 || !header[0].equals("nnue-data"))
+            throw new IOException(file + " is not an NnueData file");
+        int fileM = Integer.parseInt(header[1]), fileN = Integer.parseInt(header[2]), fileK = Integer.parseInt(header[3]);
+        if (M < 0) {
+            M = fileM;
+            N = fileN;
+            K = fileK;
+        } else if (fileM != M || fileN != N || fileK != K) {
+            throw new IOException(file + " holds positions of another geometry");
+        }
+        for (int i = 1; i < lines.size(); i++) {
+            String[] fields = lines.get(i).trim().split(" ");
+            if (fields.length != 4) throw new IOException("Malformed line in " + file + ": " + lines.get(i));
+            double result = (Integer.parseInt(fields[0]) + 1) / 2.0;
+            double score = Integer.parseInt(fields[1]);
+            List<Integer> active = new ArrayList<>();
+            for (int player = 0; player < 2; player++)
+                if (!fields[2 + player].equals("-"))
+                    for (String cell : fields[2 + player].split(","))
+                        active.add(2 * Integer.parseInt(cell) + player);
+            int[] sample = new int[active.size()];
+            for (int f = 0; f < sample.length; f++) sample[f] = active.get(f);
+            features.add(sample);
+            targets.add(lambda * result + (1 - lambda) * sigmoid(scale * score));
+        }
+    }
+
+    private static double sigmoid(double x) {
+        return 1 / (1 + Math.exp(-x));
+    }
+
+    // Hidden layer before clipping, into acc; returns the output y
+    private double forward(int[] sample, double[] acc) {
+        System.arraycopy(b1, 0, acc, 0, hidden);
+        for (int feature : sample)
+            for (int h = 0, row = feature * hidden; h < hidden; h++) acc[h] += w1[row + h];
+        double y = b2;
+        for (int h = 0; h < hidden; h++) y += Math.max(0, Math.min(1, acc[h])) * w2[h];
+        return y;
+    }
+
+    public void run() throws IOException {
+        for (Path file : files) load(file);
+        if (features.isEmpty()) throw new IOException("No positions to train on");
+        int inputs = 2 * M * N;
+        Random rand = new Random(seed);
+        w1 = new double[inputs * hidden];
+        b1 = new double[hidden];
+        w2 = new double[hidden];
+        for (int i = 0; i < w1.length; i++) w1[i] = (rand.nextDouble() - 0.5) * 0.1;
+        for (int h = 0; h < hidden; h++) {
+            b1[h] = 0.5;
+            w2[h] = (rand.nextDouble() - 0.5) * 0.2;
+        }
+        // Parameters in one array for Adam: w1, b1, w2, b2
+        int size = w1.length + 2 * hidden + 1;
+        double[] m = new double[size], v = new double[size], gradient = new double[size];
+        double[] acc = new double[hidden];
+        int[] order = new int[features.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        System.out.println("Positions : " + order.length + " on " + M + "," + N + "," + K + ", " + hidden + " hidden units");
+
+        long step = 0;
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = rand.nextInt(i + 1), swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            double loss = 0;
+            for (int start = 0; start < order.length; start += BATCH) {
+                int end = Math.min(order.length, start + BATCH);
+                Arrays.fill(gradient, 0);
+                for (int s = start; s < end; s++) {
+                    int[] sample = features.get(order[s]);
+                    double p = sigmoid(forward(sample, acc)), error = p - targets.get(order[s]);
+                    loss += error * error;
+                    double g = 2 * error * p * (1 - p) / (end - start);
+                    gradient[size - 1] += g;
+                    for (int h = 0; h < hidden; h++) {
+                        boolean live = acc[h] > 0 && acc[h] < 1;
+                        gradient[w1.length + hidden + h] += g * Math.max(0, Math.min(1, acc[h]));
+                        if (!live) continue;
+                        double gh = g * w2[h];
+                        gradient[w1.length + h] += gh;
+                        for (int feature : sample) gradient[feature * hidden + h] += gh;
+                    }
+                }
+                step++;
+                double mCorrection = 1 - Math.pow(0.9, step), vCorrection = 1 - Math.pow(0.999, step);
+                for (int i = 0; i < size; i++) {
+                    if (gradient[i] == 0 && m[i] == 0) continue;
+                    m[i] = 0.9 * m[i] + 0.1 * gradient[i];
+                    v[i] = 0.999 * v[i] + 0.001 * gradient[i] * gradient[i];
+                    double delta = rate * (m[i] / mCorrection) / (Math.sqrt(v[i] / vCorrection) + 1e-8);
+                    if (i < w1.length) w1[i] -= delta;
+                    else if (i < w1.length + hidden) b1[i - w1.length] -= delta;
+                    else if (i < size - 1) w2[i - w1.length - hidden] -= delta;
+                    else b2 -= delta;
+                }
+            }
+            System.out.println("Epoch " + epoch + ": loss " + loss / order.length);
+        }
+
+        quantise().save(output);
+        System.out.println("Network   : " + output);
+    }
+
+    private NnueNetwork quantise() {
+        int QA = NnueNetwork.QA, QB = NnueNetwork.QB;
+        int[] hiddenWeights = new int[w1.length], hiddenBias = new int[hidden], outputWeights = new int[hidden];
+        for (int i = 0; i < w1.length; i++) hiddenWeights[i] = (int) Math.round(w1[i] * QA);
+        for (int h = 0; h < hidden; h++) {
+            hiddenBias[h] = (int) Math.round(b1[h] * QA);
+            outputWeights[h] = (int) Math.round(w2[h] * QB);
+        }
+        int outputBias = (int) Math.round(b2 * QA * QB);
+        int divisor = (int) Math.max(1, Math.round(QA * QB * scale));
+        return new NnueNetwork(M, N, K, hiddenWeights, hiddenBias, outputWeights, outputBias, divisor);
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                files.add(Path.of(args[i]));
+                continue;
+            }
+            if (args[i].length() != 2 || i + 1 >= args.length)
+                throw new IllegalArgumentException("Illegal argument: " + args[i]);
+            String value = args[++i];
+            switch (args[i - 1].charAt(1)) {
+                case 'e' -> epochs = Integer.parseInt(value);
+                case 'r' -> rate = Double.parseDouble(value);
+                case 'h' -> hidden = Integer.parseInt(value);
+                case 'l' -> lambda = Double.parseDouble(value);
+                case 'k' -> scale = Double.parseDouble(value);
+                case 's' -> seed = Long.parseLong(value);
+                case 'o' -> output = Path.of(value);
+                default -> throw new IllegalArgumentException("Illegal argument: " + args[i - 1]);
+            }
+        }
+        if (files.isEmpty())
+            throw new IllegalArgumentException("Expected at least one data file");
+        if (epochs < 0 || hidden <= 0 || lambda < 0 || lambda > 1 || scale <= 0)
+            throw new IllegalArgumentException("Illegal epochs, hidden units, lambda or scale");
+    }
+
+    public static void main(String[] args) throws IOException {
+        NnueTrainer trainer = new NnueTrainer();
+        try {
+            trainer.parseArgs(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: NnueTrainer [-e epochs] [-r rate] [-h hidden] [-l lambda] [-k scale] [-s seed] [-o network file] <data file>...");
+            System.exit(1);
+        }
+        trainer.run();
+    }
+}
@@ -0,0 +1,172 @@
+package Cucci_Bindi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table-driven evaluation of the K-windows of a {@link Game}.
+ * <p>
+ * The score of every window pattern, combined with the state of its two flanks, is computed
+ * once: evaluating a position is then one lookup per window of the lines holding stones. A
+ * window holding stones of a single player scores the weight for its stone count and for the
+ * number of empty flanks, so an open three is worth more than a closed one. Windows holding
+ * stones of both players are dead and score 0, so lines where every window is dead are skipped.
+ */
+public class PatternEvaluator {
+
+    // Flank states: digits as kept by Game, WALL_DIGIT outside the board
+    static final int EMPTY_DIGIT = 0, FIRST_DIGIT = 1, SECOND_DIGIT = 2, WALL_DIGIT = 3;
+
+    // Added to the move score of cells in a threatening window of either player
+    public static final int TACTICAL = 1 << 24;
+
+    // Uses the Vector API scorer when available (see WindowScorer), unless disabled, on boards
+    // of at least VECTOR_MIN_WINDOWS windows: EvalBenchmark has it slower up to 10,10,5 (192
+    // windows) and faster from 11,11,5 (252 windows)
+    private static final boolean VECTOR = Boolean.parseBoolean(System.getProperty("Cucci_Bindi.vector", "true"));
+    private static final int VECTOR_MIN_WINDOWS = Integer.getInteger("Cucci_Bindi.vectorWindows", 250);
+
+    private static final ConcurrentHashMap<WindowTable, PatternEvaluator> defaults = new ConcurrentHashMap<>();
+
+    private final WindowTable table;
+    private final int[] weights;
+    private final int[] scores; // by code << 4 | flankBefore << 2 | flankAfter
+    private final int[] features; // weight index + 1, negated for the second player, 0 if dead
+    private final int[] urgency; // by code, for move ordering
+    private final WindowScorer vector; // null for the scalar evaluation
+
+    public PatternEvaluator(WindowTable table, int[] weights) {
+        if (weights.length != (table.K + 1) * 3)
+            throw new IllegalArgumentException("Expected " + (table.K + 1) * 3 + " weights");
+        this.table = table;
+        this.weights = weights.clone();
+        this.scores = new int[table.codes << 4];
+        this.features = new int[table.codes << 4];
+        this.urgency = new int[table.codes];
+
+        for (int code = 0; code < table.codes; code++) {
+            int first = table.firstStones(code), second = table.secondStones(code);
+            if (first == 0 || second == 0) urgency[code] = 1 << Math.min(2 * (first + second), 16);
+            for (int before = 0; before < 4; before++)
+                for (int after = 0; after < 4; after++) {
+                    int open = (before == EMPTY_DIGIT ? 1 : 0) + (after == EMPTY_DIGIT ? 1 : 0);
+                    int feature = 0;
+                    if (first > 0 && second == 0) feature = first * 3 + open + 1;
+                    else if (second > 0 && first == 0) feature = -(second * 3 + open + 1);
+                    features[code << 4 | before << 2 | after] = feature;
+                    scores[code << 4 | before << 2 | after] = feature > 0 ? weights[feature - 1]
+                            : feature < 0 ? -weights[-feature - 1] : 0;
+                }
+        }
+        this.vector = VECTOR && table.windows >= VECTOR_MIN_WINDOWS ? WindowScorer.vector(table, weights) : null;
+    }
+
+    public static PatternEvaluator forTable(WindowTable table) {
+        return defaults.computeIfAbsent(table, t -> new PatternEvaluator(t, defaultWeights(t.K)));
+    }
+
+    // Weight of a window with p stones and o empty flanks is at index p * 3 + o
+    public static int[] defaultWeights(int K) {
+        int[] weights = new int[(K + 1) * 3];
+        for (int p = 1; p < K; p++) {
+            int base = (1 << p) - 1;
+            weights[p * 3] = base;
+            weights[p * 3 + 1] = base + base / 2;
+            weights[p * 3 + 2] = 2 * base;
+        }
+        return weights;
+    }
+
+    // Loads weights written by save(); null if the file is for another K
+    public static PatternEvaluator load(Path file, WindowTable table) throws IOException {
+        int K = -1;
+        int[] weights = null;
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] pair = line.split("=", 2);
+            if (pair.length != 2) throw new IOException("Malformed line in " + file + ": " + line);
+            if (pair[0].trim().equals("K")) K = Integer.parseInt(pair[1].trim());
+            else if (pair[0].trim().equals("weights")) {
+                String[] values = pair[1].trim().split("\\s+");
+                weights = new int[values.length];
+                for (int i = 0; i < values.length; i++) weights[i] = Integer.parseInt(values[i]);
+            }
+        }
+        if (K < 0 || weights == null) throw new IOException("Missing K or weights in " + file);
+        return K == table.K ? new PatternEvaluator(table, weights) : null;
+    }
+
+    public static void save(Path file, int K, int[] weights) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# Window weights, by stone count and empty flanks: index = stones * 3 + flanks");
+        lines.add("K=" + K);
+        StringBuilder values = new StringBuilder();
+        for (int weight : weights) values.append(values.length() == 0 ? "" : " ").append(weight);
+        lines.add("weights=" + values);
+        Files.write(file, lines);
+    }
+
+    public int[] getWeights() {
+        return weights.clone();
+    }
+
+    public WindowTable getTable() {
+        return table;
+    }
+
+    // Adds to counts[i] the number of first player windows scored by weight i, minus those of
+    // the second player: the evaluation is the dot product of counts and weights
+    public void features(Game game, int[] counts) {
+        final int[] codes = game.getWindowCodes(), digits = game.getDigits();
+        for (int l = 0; l < table.lines; l++) {
+            if (game.getLineStones(table.lineType[l], table.lineIndex[l]) == 0 || game.getLiveWindows(l) == 0)
+                continue;
+            for (int w = table.lineStart[l]; w < table.lineStart[l + 1]; w++) {
+                int feature = features[codes[w] << 4 | digits[table.flankBefore[w]] << 2 | digits[table.flankAfter[w]]];
+                if (feature > 0) counts[feature - 1]++;
+                else if (feature < 0) counts[-feature - 1]--;
+            }
+        }
+    }
+
+    // Cheap static score of an empty cell for move ordering: live windows through it, weighted
+    // by their stones, plus TACTICAL if it extends or blocks a threat
+    public int moveScore(Game game, int cell) {
+        final int[] codes = game.getWindowCodes(), threatOf = table.threatOf;
+        int score = 0;
+        boolean tactical = false;
+        for (int slot = table.cellStart[cell]; slot < table.cellStart[cell + 1]; slot++) {
+            int code = codes[table.cellWindow[slot]];
+            score += urgency[code];
+            tactical |= threatOf[code] != Game.PLAYER_NONE;
+        }
+        return tactical ? TACTICAL + score : score;
+    }
+
+    public boolean isVectorized() {
+        return vector != null;
+    }
+
+    // Score from the point of view of the first player, without the win check
+    public int evaluate(Game game) {
+        return vector != null ? vector.score(game) : evaluateScalar(game);
+    }
+
+    public int evaluateScalar(Game game) {
+        final int[] codes = game.getWindowCodes(), digits = game.getDigits();
+        final int[] flankBefore = table.flankBefore, flankAfter = table.flankAfter;
+        int score = 0;
+        for (int l = 0; l < table.lines; l++) {
+            if (game.getLineStones(table.lineType[l], table.lineIndex[l]) == 0 || game.getLiveWindows(l) == 0)
+                continue;
+            for (int w = table.lineStart[l]; w < table.lineStart[l + 1]; w++)
+                score += scores[codes[w] << 4 | digits[flankBefore[w]] << 2 | digits[flankAfter[w]]];
+        }
+        return score;
+    }
+}
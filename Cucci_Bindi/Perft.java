@@ -0,0 +1,106 @@
+package Cucci_Bindi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the leaves of the game tree to a fixed depth from reference positions.
+ * <p>
+ * A leaf is a position at the target depth, a won position or a full board: games stop at
+ * wins. The counts check playMove/unPlayMove, generateMoves and the win detection of
+ * {@link Game} against known values, and the timings measure the make/unmake throughput.
+ * The large-board candidate zone is disabled, so every legal move is counted.
+ * <p>
+ * Usage: Perft [-j threads] [M N K depth [moves...]]
+ */
+public class Perft {
+
+    private record Position(int M, int N, int K, int depth, int[] moves, long expected) {
+    }
+
+    // Expected counts were cross-checked against an independent brute-force counter
+    private static final Position[] SUITE = {
+            new Position(3, 3, 3, 9, new int[]{}, 255168),
+            new Position(4, 4, 3, 5, new int[]{}, 524160),
+            new Position(5, 5, 4, 4, new int[]{}, 303600),
+            new Position(7, 7, 5, 3, new int[]{}, 110544),
+            new Position(4, 4, 4, 6, new int[]{0, 5, 10}, 1227960),
+            new Position(6, 6, 4, 4, new int[]{14, 15, 21, 20, 8}, 750462),
+            new Position(4, 3, 3, 8, new int[]{}, 14770080),
+    };
+
+    public static long perft(Game game, int depth) {
+        if (depth == 0 || game.getWinner() != Game.PLAYER_NONE || game.maxDepth() == 0) return 1;
+
+        long leaves = 0;
+        for (int move : game.generateMoves()) {
+            game.playMove(move);
+            leaves += perft(game, depth - 1);
+            game.unPlayMove();
+        }
+        return leaves;
+    }
+
+    // Splits the root moves over a thread pool, each task working on its own copy of the game
+    public static long perft(Game game, int depth, ExecutorService pool) throws Exception {
+        if (depth == 0 || game.getWinner() != Game.PLAYER_NONE || game.maxDepth() == 0) return 1;
+
+        List<Future<Long>> tasks = new ArrayList<>();
+        for (int move : game.generateMoves()) {
+            Game copy = game.clone();
+            copy.playMove(move);
+            tasks.add(pool.submit(() -> perft(copy, depth - 1)));
+        }
+        long leaves = 0;
+        for (Future<Long> task : tasks) leaves += task.get();
+        return leaves;
+    }
+
+    private static boolean run(Position position, ExecutorService pool) throws Exception {
+        Game game = new Game(position.M(), position.N(), position.K());
+        game.setCandidateRadius(0); // every legal move, also on large boards
+        for (int move : position.moves()) game.playMove(move);
+
+        long start = System.nanoTime();
+        long leaves = pool == null ? perft(game, position.depth()) : perft(game, position.depth(), pool);
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        boolean ok = position.expected() < 0 || leaves == position.expected();
+        System.out.println(String.format("%d,%d,%d depth %d: %12d leaves %s %8.3f s %12.0f leaves/s",
+                position.M(), position.N(), position.K(), position.depth(), leaves,
+                position.expected() < 0 ? "" : ok ? "OK      " : "MISMATCH (expected " + position.expected() + ")",
+                secs, leaves / secs));
+        return ok;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = 1;
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j") && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else values.add(Integer.parseInt(args[i]));
+        }
+        if (!values.isEmpty() && values.size() < 4) {
+            System.err.println("Usage: Perft [-j threads] [M N K depth [moves...]]");
+            System.exit(1);
+        }
+
+        Position[] positions = SUITE;
+        if (!values.isEmpty()) {
+            int[] moves = values.subList(4, values.size()).stream().mapToInt(Integer::intValue).toArray();
+            positions = new Position[]{new Position(values.get(0), values.get(1), values.get(2), values.get(3), moves, -1)};
+        }
+
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        boolean ok = true;
+        try {
+            for (Position position : positions) ok &= run(position, pool);
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+        if (!ok) System.exit(1);
+    }
+}
@@ -0,0 +1,222 @@
+package Cucci_Bindi;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Depth-first proof-number search (df-pn) for forced wins of one player, the attacker.
+ * <p>
+ * Every position has a proof number and a disproof number, the least number of leaves to
+ * expand to prove or to disprove the attacker's win; the search always expands the most
+ * proving leaf, staying in a subtree while its numbers are under thresholds. The numbers live
+ * in a bounded, always-replace table keyed by the position hash. Draws count as failures.
+ * <p>
+ * The attacker only tries cells of windows it can still complete holding at least K - 3 of its
+ * stones, while the defender tries every empty cell, so a proof is a real forced win while a
+ * disproof only means no such win was found. Both players must answer an immediate winning
+ * threat of the other.
+ */
+public class ProofSolver {
+
+    public static final int UNKNOWN = 0, PROVEN = 1, DISPROVEN = 2;
+
+    private static final int INF = 1 << 28;
+    private static final long ATTACKER_SALT = 0x6A09E667F3BCC909L; // keys of the second player's proofs
+
+    private final long[] keys;
+    private final int[] phis, deltas; // numbers for the player to move: to succeed, to fail
+    private final int mask;
+
+    private Game game;
+    private int attacker;
+    private WindowTable table;
+    private int[] firstStones, secondStones; // by window code
+    private int[] seen; // generation stamp of the candidate cells
+    private int[] candidates; // scratch of generate(), copied out before the search goes deeper
+    private int generation;
+
+    private long nodes, nodeLimit, deadline;
+    private int bestMove;
+
+    public ProofSolver(int entries) {
+        int size = Integer.highestOneBit(Math.max(2, entries));
+        keys = new long[size];
+        phis = new int[size];
+        deltas = new int[size];
+        mask = size - 1;
+    }
+
+    // Table of at most mb megabytes, null if mb is 0
+    public static ProofSolver ofMegabytes(int mb) {
+        return mb <= 0 ? null : new ProofSolver((int) Math.min(1 << 30, ((long) mb << 20) / 16));
+    }
+
+    /**
+     * Tries to prove that attacker wins from the current position of game, within nodeLimit
+     * nodes and before the deadline (System.currentTimeMillis(), 0 for none). The game is left
+     * unchanged. When the attacker is to move and PROVEN is returned, getBestMove() wins.
+     */
+    public int solve(Game game, int attacker, long nodeLimit, long deadline) {
+        if (this.table != game.getWindowTable()) {
+            table = game.getWindowTable();
+            firstStones = new int[table.codes];
+            secondStones = new int[table.codes];
+            for (int code = 0; code < table.codes; code++) {
+                firstStones[code] = table.firstStones(code);
+                secondStones[code] = table.secondStones(code);
+            }
+            seen = new int[table.M * table.N];
+            candidates = new int[table.M * table.N];
+        }
+        this.game = game;
+        this.attacker = attacker;
+        this.nodeLimit = nodeLimit;
+        this.deadline = deadline;
+        nodes = 0;
+        bestMove = -1;
+
+        try {
+            long numbers = mid(0, INF, INF);
+            int phi = (int) (numbers >>> 32), delta = (int) numbers;
+            boolean moverSucceeds = phi == 0, moverFails = delta == 0;
+            if (!moverSucceeds && !moverFails) return UNKNOWN;
+            return moverSucceeds == (game.getTurn() == attacker) ? PROVEN : DISPROVEN;
+        } catch (TimeoutException e) {
+            return UNKNOWN;
+        }
+    }
+
+    // Winning move of the last proof, when the attacker was to move
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Expands the position until its numbers reach a threshold; returns phi << 32 | delta
+    private long mid(int ply, int phiThreshold, int deltaThreshold) throws TimeoutException {
+        if (++nodes >= nodeLimit || Thread.currentThread().isInterrupted()
+                || (deadline > 0 && (nodes & 255) == 0 && System.currentTimeMillis() >= deadline))
+            throw new TimeoutException();
+
+        int[] moves = generate(ply);
+        if (moves.length == 0) return store(game.getHash(), INF, 0);
+        if (moves[0] < 0) return store(game.getHash(), 0, INF); // immediate win
+
+        long[] children = new long[moves.length];
+        while (true) {
+            // phi is the smallest child delta, delta the sum of the child phis
+            int phi = INF, delta = 0, secondDelta = INF, best = 0;
+            for (int c = 0; c < moves.length; c++) {
+                long numbers = lookup(childKey(moves[c]));
+                children[c] = numbers;
+                int childPhi = (int) (numbers >>> 32), childDelta = (int) numbers;
+                if (childDelta < phi) {
+                    secondDelta = phi;
+                    phi = childDelta;
+                    best = c;
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+                delta = Math.min(INF, delta + childPhi);
+            }
+            if (ply == 0) bestMove = moves[best];
+            if (phi >= phiThreshold || delta >= deltaThreshold || phi == 0 || delta >= INF)
+                return store(game.getHash(), phi, delta);
+
+            int bestPhi = (int) (children[best] >>> 32);
+            int childPhi = (int) Math.min(INF, (long) deltaThreshold - delta + bestPhi);
+            int childDelta = Math.min(phiThreshold, secondDelta + 1);
+            game.playMove(moves[best]);
+            try {
+                mid(ply + 1, childPhi, childDelta);
+            } finally {
+                game.unPlayMove();
+            }
+        }
+    }
+
+    // Moves to search, {-winning move} for an immediate win, empty if the player to move fails
+    private int[] generate(int ply) {
+        int mover = game.getTurn();
+        if (game.getWinner() != Game.PLAYER_NONE) return new int[0];
+        if (game.maxDepth() == 0 || game.isDeadDraw()) return mover == attacker ? new int[0] : new int[]{-1};
+
+        boolean moverIsFirst = mover == Game.PLAYER_1;
+        int[] codes = game.getWindowCodes(), digits = game.getDigits();
+        int candidateStones = Math.max(1, table.K - 3);
+        int threat = -1, threats = 0;
+        int count = 0;
+        generation++;
+
+        for (int l = 0; l < table.lines; l++) {
+            if (game.getLineStones(table.lineType[l], table.lineIndex[l]) == 0) continue;
+            for (int w = table.lineStart[l]; w < table.lineStart[l + 1]; w++) {
+                int own = moverIsFirst ? firstStones[codes[w]] : secondStones[codes[w]];
+                int other = moverIsFirst ? secondStones[codes[w]] : firstStones[codes[w]];
+                if (other == 0 && own == table.K - 1) {
+                    int cell = emptyCell(w, digits);
+                    if (ply == 0) bestMove = cell;
+                    return new int[]{-1 - cell};
+                }
+                if (own == 0 && other == table.K - 1) {
+                    int cell = emptyCell(w, digits);
+                    if (cell != threat) {
+                        threat = cell;
+                        threats++;
+                    }
+                } else if (mover == attacker && other == 0 && own >= candidateStones && threats == 0) {
+                    for (int k = 0, cell = table.windowCell[w]; k < table.K; k++, cell += table.windowStep[w])
+                        if (digits[cell] == PatternEvaluator.EMPTY_DIGIT && seen[cell] != generation) {
+                            seen[cell] = generation;
+                            candidates[count++] = cell;
+                        }
+                }
+            }
+        }
+        // Two threats on different cells cannot both be blocked
+        if (threats > 1) return new int[0];
+        if (threats == 1) return new int[]{threat};
+        if (mover == attacker) return Arrays.copyOf(candidates, count);
+
+        // The defender tries every empty cell: on large boards the candidate zone of
+        // generateMoves() misses blocks far from the stones, which would make proofs unsound
+        count = 0;
+        for (int cell = 0; cell < table.M * table.N; cell++)
+            if (digits[cell] == PatternEvaluator.EMPTY_DIGIT) candidates[count++] = cell;
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private int emptyCell(int w, int[] digits) {
+        for (int k = 0, cell = table.windowCell[w]; k < table.K; k++, cell += table.windowStep[w])
+            if (digits[cell] == PatternEvaluator.EMPTY_DIGIT) return cell;
+        throw new IllegalStateException("Window without empty cells");
+    }
+
+    private long childKey(int move) {
+        return salted(game.getHashAfter(move));
+    }
+
+    private long salted(long hash) {
+        return attacker == Game.PLAYER_1 ? hash : hash ^ ATTACKER_SALT;
+    }
+
+    // Numbers of a position, 1 and 1 if unknown
+    private long lookup(long key) {
+        int index = (int) key & mask;
+        if (keys[index] == key && (phis[index] | deltas[index]) != 0)
+            return (long) phis[index] << 32 | deltas[index];
+        return 1L << 32 | 1;
+    }
+
+    private long store(long hash, int phi, int delta) {
+        long key = salted(hash);
+        int index = (int) key & mask;
+        keys[index] = key;
+        phis[index] = phi;
+        deltas[index] = delta;
+        return (long) phi << 32 | delta;
+    }
+}
@@ -0,0 +1,174 @@
+package Cucci_Bindi;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless engine-vs-engine games at fixed search budgets, written as {@link GameRecord}s.
+ * <p>
+ * Usage: SelfPlay [OPTIONS] &lt;M&gt; &lt;N&gt; &lt;K&gt; &lt;games&gt;<br>
+ * OPTIONS:<br>
+ * -d &lt;depth&gt;   Search depth in plies. Default: 4<br>
+ * -n &lt;nodes&gt;   Node budget per move. Default: unlimited<br>
+ * -p &lt;plies&gt;   Random opening plies. Default: 2<br>
+ * -j &lt;threads&gt; Worker threads. Default: available processors<br>
+ * -s &lt;seed&gt;    Random seed. Default: 1<br>
+ * -c &lt;MB&gt;      Evaluation cache per thread, 0 to disable. Default: 16<br>
+ * -r &lt;0|1&gt;     Selective search (reductions, null move), 0 for full width. Default: 1<br>
+ * -v &lt;nodes&gt;   Proof-number solver nodes per proof, 0 to disable. Default: 0<br>
+ * -o &lt;file&gt;    Output file. Default: selfplay.mnkr
+ */
+public class SelfPlay {
+
+    private int M, N, K, games;
+    private int depth = 4;
+    private long nodes = Long.MAX_VALUE;
+    private int openingPlies = 2;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = 1;
+    private int evalCacheMB = 16;
+    private boolean selective = true;
+    private long solverNodes = 0;
+    private Path output = Path.of("selfplay.mnkr");
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicLong searchedNodes = new AtomicLong();
+    private final AtomicInteger[] results = {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+    private final AtomicLong cacheHits = new AtomicLong(), cacheMisses = new AtomicLong();
+
+    private GameRecord playGame(int index, EvalCache evalCache, ProofSolver solver) {
+        Random rand = new Random(seed * 1_000_003L + index);
+        Game game = new Game(M, N, K);
+        AISearcher searcher = new AISearcher(game, 0);
+        searcher.setDepthLimit(depth);
+        searcher.setNodeLimit(nodes);
+        searcher.setEvalCache(evalCache);
+        searcher.setSelective(selective);
+        if (solver != null) searcher.setSolver(solver, 0, solverNodes);
+
+        int[] moves = new int[M * N];
+        int[] scores = new int[M * N];
+        int ply = 0;
+        // Games stop as draws as soon as no window is left for either player
+        while (searcher.getGame().getWinner() == Game.PLAYER_NONE && searcher.getGame().maxDepth() > 0
+                && !searcher.getGame().isDeadDraw()) {
+            int move;
+            if (ply < openingPlies) {
+                move = randomMove(searcher.getGame(), rand);
+                scores[ply] = 0;
+            } else {
+                move = searcher.iterativeDeepening();
+                scores[ply] = searcher.getLastScore();
+                searchedNodes.addAndGet(searcher.getNodes());
+            }
+            searcher.update(move);
+            moves[ply++] = move;
+        }
+
+        return new GameRecord(M, N, K, GameRecord.resultOf(searcher.getGame()),
+                Arrays.copyOf(moves, ply), Arrays.copyOf(scores, ply));
+    }
+
+    private static int randomMove(Game game, Random rand) {
+        List<Integer> moves = new ArrayList<>();
+        for (int move : game.generateMoves()) moves.add(move);
+        return moves.get(rand.nextInt(moves.size()));
+    }
+
+    public void run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try (GameRecordWriter writer = new GameRecordWriter(output)) {
+            Thread[] workers = new Thread[threads];
+            final IOException[] failure = new IOException[1];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    // Keys depend only on the geometry, so the cache stays valid across games
+                    EvalCache evalCache = EvalCache.ofMegabytes(evalCacheMB);
+                    ProofSolver solver = solverNodes > 0 ? ProofSolver.ofMegabytes(16) : null;
+                    try {
+                        for (int index = nextGame.getAndIncrement(); index < games; index = nextGame.getAndIncrement()) {
+                            GameRecord record = playGame(index, evalCache, solver);
+                            results[record.result].incrementAndGet();
+                            writer.write(record);
+                        }
+                    } catch (IOException e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
+                        nextGame.set(games);
+                    }
+                    if (evalCache != null) {
+                        cacheHits.addAndGet(evalCache.getHits());
+                        cacheMisses.addAndGet(evalCache.getMisses());
+                    }
+                }, "selfplay-" + t);
+                workers[t].start();
+            }
+            for (Thread worker : workers) worker.join();
+            if (failure[0] != null) throw failure[0];
+        }
+
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.println("Games     : " + games + " (" + String.format("%.1f", games / secs) + " games/s)");
+        System.out.println("Results   : P1 " + results[GameRecord.WIN_P1] + ", P2 " + results[GameRecord.WIN_P2]
+                + ", draws " + results[GameRecord.DRAW]);
+        System.out.println("Nodes     : " + searchedNodes + " (" + String.format("%.0f", searchedNodes.get() / secs) + " nodes/s)");
+        if (evalCacheMB > 0) {
+            long probes = cacheHits.get() + cacheMisses.get();
+            System.out.println("Eval cache: " + cacheHits + " hits, " + cacheMisses + " misses ("
+                    + String.format("%.1f", probes == 0 ? 0.0 : 100.0 * cacheHits.get() / probes) + "% hits)");
+        }
+        System.out.println("Output    : " + output);
+    }
+
+    private void parseArgs(String[] args) {
+        List<String> L = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                L.add(args[i]);
+                continue;
+            }
+            if (args[i].length() != 2 || i + 1 >= args.length)
+                throw new IllegalArgumentException("Illegal argument: " + args[i]);
+            String value = args[++i];
+            switch (args[i - 1].charAt(1)) {
+                case 'd' -> depth = Integer.parseInt(value);
+                case 'n' -> nodes = Long.parseLong(value);
+                case 'p' -> openingPlies = Integer.parseInt(value);
+                case 'j' -> threads = Integer.parseInt(value);
+                case 's' -> seed = Long.parseLong(value);
+                case 'c' -> evalCacheMB = Integer.parseInt(value);
+                case 'r' -> selective = Integer.parseInt(value) != 0;
+                case 'v' -> solverNodes = Long.parseLong(value);
+                case 'o' -> output = Path.of(value);
+                default -> throw new IllegalArgumentException("Illegal argument: " + args[i - 1]);
+            }
+        }
+        if (L.size() != 4)
+            throw new IllegalArgumentException("Expected <M> <N> <K> <games>");
+        M = Integer.parseInt(L.get(0));
+        N = Integer.parseInt(L.get(1));
+        K = Integer.parseInt(L.get(2));
+        games = Integer.parseInt(L.get(3));
+        if (M <= 0 || N <= 0 || K <= 0 || games < 0 || depth <= 0 || threads <= 0)
+            throw new IllegalArgumentException("Arguments must be larger than 0");
+    }
+
+    public static void main(String[] args) throws Exception {
+        SelfPlay selfPlay = new SelfPlay();
+        try {
+            selfPlay.parseArgs(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: SelfPlay [-d depth] [-n nodes] [-p plies] [-j threads] [-s seed] [-c MB] [-r 0|1] [-v nodes] [-o file] <M> <N> <K> <games>");
+            System.exit(1);
+        }
+        selfPlay.run();
+    }
+}
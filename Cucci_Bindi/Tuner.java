@@ -0,0 +1,210 @@
+package Cucci_Bindi;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fits the {@link PatternEvaluator} weights to game outcomes (Texel tuning).
+ * <p>
+ * Every non-terminal position of the game records, past the opening plies, is labelled with
+ * the final result of its game (1, 0.5, 0 for the first player). The loss is the mean squared
+ * error between the label and <code>sigmoid(scale * eval)</code>. The evaluation is linear in
+ * the weights, so each pass over the data returns the exact gradient, which is followed with
+ * Adam steps. The scale is fitted once on the starting weights. Records are streamed from disk
+ * in chunks evaluated on a thread pool, for every pass.
+ * <p>
+ * Usage: Tuner [-e epochs] [-r rate] [-p plies] [-j threads] [-o weights file] &lt;record file&gt;...
+ */
+public class Tuner {
+
+    private static final int CHUNK = 256;
+    private static final double[] SCALES = {0.001, 0.002, 0.005, 0.01, 0.02, 0.05, 0.1, 0.2, 0.5};
+
+    private int epochs = 50;
+    private double rate = 0.5;
+    private int skipPlies = 2;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path output = Path.of("weights.txt");
+    private final List<Path> files = new ArrayList<>();
+
+    private WindowTable table;
+    private PatternEvaluator features;
+    private int size; // number of weights
+
+    // Loss and gradient sums over a part of the data, for each of the given scales
+    private static class Partial {
+        final double[] loss;
+        final double[] gradient;
+        long positions;
+        long skipped; // records of another geometry
+
+        Partial(int scales, int size) {
+            loss = new double[scales];
+            gradient = new double[size];
+        }
+
+        void add(Partial other) {
+            for (int i = 0; i < loss.length; i++) loss[i] += other.loss[i];
+            for (int i = 0; i < gradient.length; i++) gradient[i] += other.gradient[i];
+            positions += other.positions;
+            skipped += other.skipped;
+        }
+    }
+
+    private Partial evaluate(List<GameRecord> records, double[] weights, double[] scales) {
+        Partial partial = new Partial(scales.length, size);
+        int[] counts = new int[size];
+        for (GameRecord record : records) {
+            if (record.M != table.M || record.N != table.N || record.K != table.K) {
+                partial.skipped++;
+                continue;
+            }
+            double label = record.getWinner() == Game.PLAYER_1 ? 1 : record.getWinner() == Game.PLAYER_2 ? 0 : 0.5;
+            Game game = new Game(record.M, record.N, record.K);
+            for (int ply = 0; ply < record.length(); ply++) {
+                if (ply >= skipPlies) {
+                    Arrays.fill(counts, 0);
+                    features.features(game, counts);
+                    double eval = 0;
+                    for (int i = 0; i < size; i++) eval += counts[i] * weights[i];
+
+                    for (int s = 0; s < scales.length; s++) {
+                        double sigmoid = 1 / (1 + Math.exp(-scales[s] * eval));
+                        double error = label - sigmoid;
+                        partial.loss[s] += error * error;
+                        // The gradient is only needed for the scale being used
+                        if (s == 0) {
+                            double factor = -2 * error * sigmoid * (1 - sigmoid) * scales[s];
+                            for (int i = 0; i < size; i++) partial.gradient[i] += factor * counts[i];
+                        }
+                    }
+                    partial.positions++;
+                }
+                game.playMove(record.getMove(ply));
+            }
+        }
+        return partial;
+    }
+
+    // One pass over all the records, chunks being evaluated in parallel as they are read
+    private Partial scan(ExecutorService pool, double[] weights, double[] scales) throws Exception {
+        Semaphore inFlight = new Semaphore(2 * threads);
+        List<Future<Partial>> tasks = new ArrayList<>();
+        Partial total = new Partial(scales.length, size);
+
+        for (Path file : files) {
+            try (GameRecordReader reader = new GameRecordReader(file)) {
+                List<GameRecord> chunk = new ArrayList<>(CHUNK);
+                for (GameRecord record = reader.next(); ; record = reader.next()) {
+                    if (record != null) chunk.add(record);
+                    if (chunk.size() == CHUNK || (record == null && !chunk.isEmpty())) {
+                        final List<GameRecord> records = chunk;
+                        inFlight.acquire();
+                        tasks.add(pool.submit(() -> {
+                            try {
+                                return evaluate(records, weights, scales);
+                            } finally {
+                                inFlight.release();
+                            }
+                        }));
+                        chunk = new ArrayList<>(CHUNK);
+                        // Fold finished chunks as we go, so that memory stays bounded
+                        while (!tasks.isEmpty() && tasks.get(0).isDone()) total.add(tasks.remove(0).get());
+                    }
+                    if (record == null) break;
+                }
+            }
+        }
+        for (Future<Partial> task : tasks) total.add(task.get());
+        return total;
+    }
+
+    public void run() throws Exception {
+        try (GameRecordReader reader = new GameRecordReader(files.get(0))) {
+            GameRecord first = reader.next();
+            if (first == null) throw new IOException(files.get(0) + " holds no games");
+            table = WindowTable.forGeometry(first.M, first.N, first.K);
+        }
+        int[] start = PatternEvaluator.defaultWeights(table.K);
+        size = start.length;
+        features = new PatternEvaluator(table, start);
+
+        double[] weights = new double[size];
+        for (int i = 0; i < size; i++) weights[i] = start[i];
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Partial fit = scan(pool, weights, SCALES);
+            if (fit.positions == 0) throw new IOException("No positions to tune on");
+            int best = 0;
+            for (int s = 1; s < SCALES.length; s++) if (fit.loss[s] < fit.loss[best]) best = s;
+            double[] scale = {SCALES[best]};
+            System.out.println("Positions : " + fit.positions + (fit.skipped > 0 ? " (" + fit.skipped + " games of another geometry skipped)" : ""));
+            System.out.println("Scale     : " + scale[0] + ", loss " + fit.loss[best] / fit.positions);
+
+            // Adam, on the weights of windows with 1 to K-1 stones: full windows are wins
+            double[] m = new double[size], v = new double[size];
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                Partial pass = scan(pool, weights, scale);
+                for (int i = 3; i < 3 * table.K; i++) {
+                    double g = pass.gradient[i] / pass.positions;
+                    m[i] = 0.9 * m[i] + 0.1 * g;
+                    v[i] = 0.999 * v[i] + 0.001 * g * g;
+                    double mHat = m[i] / (1 - Math.pow(0.9, epoch)), vHat = v[i] / (1 - Math.pow(0.999, epoch));
+                    weights[i] -= rate * mHat / (Math.sqrt(vHat) + 1e-12);
+                }
+                System.out.println("Epoch " + epoch + ": loss " + pass.loss[0] / pass.positions);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        int[] tuned = new int[size];
+        for (int i = 0; i < size; i++) tuned[i] = (int) Math.round(weights[i]);
+        PatternEvaluator.save(output, table.K, tuned);
+        System.out.println("Weights   : " + output);
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                files.add(Path.of(args[i]));
+                continue;
+            }
+            if (args[i].length() != 2 || i + 1 >= args.length)
+                throw new IllegalArgumentException("Illegal argument: " + args[i]);
+            String value = args[++i];
+            switch (args[i - 1].charAt(1)) {
+                case 'e' -> epochs = Integer.parseInt(value);
+                case 'r' -> rate = Double.parseDouble(value);
+                case 'p' -> skipPlies = Integer.parseInt(value);
+                case 'j' -> threads = Integer.parseInt(value);
+                case 'o' -> output = Path.of(value);
+                default -> throw new IllegalArgumentException("Illegal argument: " + args[i - 1]);
+            }
+        }
+        if (files.isEmpty())
+            throw new IllegalArgumentException("Expected at least one record file");
+        if (epochs < 0 || threads <= 0)
+            throw new IllegalArgumentException("Illegal epochs or threads");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Tuner tuner = new Tuner();
+        try {
+            tuner.parseArgs(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: Tuner [-e epochs] [-r rate] [-p plies] [-j threads] [-o weights file] <record file>...");
+            System.exit(1);
+        }
+        tuner.run();
+    }
+}
@@ -0,0 +1,23 @@
+package Cucci_Bindi;
+
+/**
+ * Scores all the K-windows of a position at once, from the point of view of the first player,
+ * as {@link PatternEvaluator#evaluate(Game)} does.
+ */
+public interface WindowScorer {
+
+    int score(Game game);
+
+    /**
+     * The Vector API scorer of Cucci_Bindi.vector, loaded reflectively since it needs the
+     * jdk.incubator.vector module: null when the module, the CPU or the weights do not allow it.
+     */
+    static WindowScorer vector(WindowTable table, int[] weights) {
+        try {
+            return (WindowScorer) Class.forName("Cucci_Bindi.vector.VectorWindowScorer")
+                    .getConstructor(WindowTable.class, int[].class).newInstance(table, weights);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
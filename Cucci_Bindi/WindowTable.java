@@ -0,0 +1,199 @@
+package Cucci_Bindi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The K-length windows of an (M,N,K) board, shared by every {@link Game} of that geometry.
+ * <p>
+ * Each window has a pattern code that {@link Game} updates incrementally: a stone adds the
+ * weight of its position in every window containing it. Up to {@link #MAX_PATTERN_K} the code
+ * is the base-3 encoding of the window (0 empty, 1 first player, 2 second player), so every
+ * shape has its own code; for longer windows the code only counts the stones of each player.
+ * The cells just before and after each window are its flanks, with {@link #WALL} outside the
+ * board.
+ */
+public final class WindowTable {
+
+    // Largest K for which windows are encoded in base 3
+    public static final int MAX_PATTERN_K = 9;
+
+    // Flank index of a cell outside the board: Game keeps a wall digit there
+    public final int WALL;
+
+    public final int M, N, K;
+    public final boolean baseThree;
+    public final int codes; // number of distinct pattern codes
+
+    final int windows;
+    final int[] flankBefore, flankAfter;
+    final int[] windowCell, windowStep; // first cell of each window and step to the next one
+
+    // Windows of each cell, in CSR form, with the code increment of each player's stone
+    final int[] cellStart, cellWindow, p1Weight, p2Weight;
+
+    // Lines holding at least one window: type (0 row, 1 column, 2 diagonal, 3 anti-diagonal),
+    // index as used by Game, and range of their windows
+    final int lines;
+    final int[] lineType, lineIndex, lineStart;
+    final int[] windowLine; // line of each window
+
+    // Player threatening through each code: a window holding at least THREAT_STONES stones of
+    // a single player, Game.PLAYER_NONE otherwise
+    final int THREAT_STONES;
+    final int[] threatOf;
+
+    // Players who can still complete a window with each code: OPEN_FIRST if it holds no second
+    // player stone, OPEN_SECOND if it holds no first player stone; 0 for dead windows
+    static final int OPEN_FIRST = 1, OPEN_SECOND = 2;
+    final int[] openOf;
+
+    // Packed line planes kept by Game: the cells of every line in a row of bytes, lines
+    // separated by one padding byte, with PLANE_PADDING more bytes at the end so that vector
+    // loads past the last window stay in bounds. windowStarts has 1 where a window starts.
+    public static final int PLANE_PADDING = 128;
+    public final int planeLength; // used bytes, padding excluded
+    public final byte[] windowStarts;
+    final int[] cellPlane; // plane position of each cell on each line type, -1 if on no line
+
+    private static final ConcurrentHashMap<Long, WindowTable> tables = new ConcurrentHashMap<>();
+
+    public static WindowTable forGeometry(int M, int N, int K) {
+        return tables.computeIfAbsent(((long) M << 40) | ((long) N << 20) | K, key -> new WindowTable(M, N, K));
+    }
+
+    private WindowTable(int M, int N, int K) {
+        this.M = M;
+        this.N = N;
+        this.K = K;
+        this.WALL = M * N;
+        this.baseThree = K <= MAX_PATTERN_K;
+        this.codes = baseThree ? pow3(K) : (K + 1) * (K + 1);
+
+        THREAT_STONES = Math.max(1, K - 2);
+        threatOf = new int[codes];
+        openOf = new int[codes];
+        for (int code = 0; code < codes; code++) {
+            int first = firstStones(code), second = secondStones(code);
+            openOf[code] = (second == 0 ? OPEN_FIRST : 0) | (first == 0 ? OPEN_SECOND : 0);
+            if (second == 0 && first >= THREAT_STONES) threatOf[code] = Game.PLAYER_1;
+            else if (first == 0 && second >= THREAT_STONES) threatOf[code] = Game.PLAYER_2;
+        }
+
+        List<int[]> lineCells = new ArrayList<>();
+        List<int[]> lineIds = new ArrayList<>();
+        for (int row = 0; row < M; row++) {
+            int[] cells = new int[N];
+            for (int col = 0; col < N; col++) cells[col] = row * N + col;
+            addLine(lineCells, lineIds, cells, 0, row);
+        }
+        for (int col = 0; col < N; col++) {
+            int[] cells = new int[M];
+            for (int row = 0; row < M; row++) cells[row] = row * N + col;
+            addLine(lineCells, lineIds, cells, 1, col);
+        }
+        // Same cell order as Game.getDiagonalSquares and Game.getAntiDiagonalSquares
+        for (int diag = 0; diag < M + N - 1; diag++) {
+            int from = Math.max(0, diag - M + 1), to = Math.min(diag, N - 1);
+            int[] cells = new int[Math.max(0, to - from + 1)], anti = new int[cells.length];
+            for (int j = from; j <= to; j++) {
+                cells[j - from] = (diag - j) * N + j;
+                anti[j - from] = (diag - j) * N + N - 1 - j;
+            }
+            addLine(lineCells, lineIds, cells, 2, diag);
+            addLine(lineCells, lineIds, anti, 3, diag);
+        }
+
+        cellPlane = new int[4 * M * N];
+        Arrays.fill(cellPlane, -1);
+        int position = 1;
+        for (int l = 0; l < lineCells.size(); l++) {
+            for (int cell : lineCells.get(l)) cellPlane[4 * cell + lineIds.get(l)[0]] = position++;
+            position++;
+        }
+        planeLength = position;
+        windowStarts = new byte[planeLength + PLANE_PADDING + K];
+        for (int l = 0; l < lineCells.size(); l++) {
+            int[] cells = lineCells.get(l);
+            int first = cellPlane[4 * cells[0] + lineIds.get(l)[0]];
+            for (int start = 0; start + K <= cells.length; start++) windowStarts[first + start] = 1;
+        }
+
+        lines = lineCells.size();
+        lineType = new int[lines];
+        lineIndex = new int[lines];
+        lineStart = new int[lines + 1];
+        int count = 0;
+        for (int l = 0; l < lines; l++) {
+            lineType[l] = lineIds.get(l)[0];
+            lineIndex[l] = lineIds.get(l)[1];
+            lineStart[l] = count;
+            count += lineCells.get(l).length - K + 1;
+        }
+        lineStart[lines] = count;
+        windows = count;
+        windowLine = new int[windows];
+        for (int l = 0; l < lines; l++)
+            Arrays.fill(windowLine, lineStart[l], lineStart[l + 1], l);
+
+        flankBefore = new int[windows];
+        flankAfter = new int[windows];
+        windowCell = new int[windows];
+        windowStep = new int[windows];
+        int[] perCell = new int[M * N];
+        int w = 0;
+        for (int[] cells : lineCells)
+            for (int start = 0; start + K <= cells.length; start++, w++) {
+                flankBefore[w] = start > 0 ? cells[start - 1] : WALL;
+                flankAfter[w] = start + K < cells.length ? cells[start + K] : WALL;
+                windowCell[w] = cells[start];
+                windowStep[w] = K > 1 ? cells[start + 1] - cells[start] : 1;
+                for (int pos = 0; pos < K; pos++) perCell[cells[start + pos]]++;
+            }
+
+        cellStart = new int[M * N + 1];
+        for (int c = 0; c < M * N; c++) cellStart[c + 1] = cellStart[c] + perCell[c];
+        cellWindow = new int[cellStart[M * N]];
+        p1Weight = new int[cellWindow.length];
+        p2Weight = new int[cellWindow.length];
+        int[] fill = cellStart.clone();
+        w = 0;
+        for (int[] cells : lineCells)
+            for (int start = 0; start + K <= cells.length; start++, w++)
+                for (int pos = 0; pos < K; pos++) {
+                    int slot = fill[cells[start + pos]]++;
+                    cellWindow[slot] = w;
+                    p1Weight[slot] = baseThree ? pow3(pos) : K + 1;
+                    p2Weight[slot] = baseThree ? 2 * pow3(pos) : 1;
+                }
+    }
+
+    private void addLine(List<int[]> lineCells, List<int[]> lineIds, int[] cells, int type, int index) {
+        if (cells.length < K) return;
+        lineCells.add(cells);
+        lineIds.add(new int[]{type, index});
+    }
+
+    // Stones of the first and of the second player in a window with the given code
+    int firstStones(int code) {
+        if (!baseThree) return code / (K + 1);
+        int n = 0;
+        for (int pos = 0; pos < K; pos++, code /= 3) if (code % 3 == 1) n++;
+        return n;
+    }
+
+    int secondStones(int code) {
+        if (!baseThree) return code % (K + 1);
+        int n = 0;
+        for (int pos = 0; pos < K; pos++, code /= 3) if (code % 3 == 2) n++;
+        return n;
+    }
+
+    private static int pow3(int e) {
+        int p = 1;
+        while (e-- > 0) p *= 3;
+        return p;
+    }
+}
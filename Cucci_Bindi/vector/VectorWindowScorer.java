@@ -0,0 +1,94 @@
+package Cucci_Bindi.vector;
+
+import Cucci_Bindi.Game;
+import Cucci_Bindi.WindowScorer;
+import Cucci_Bindi.WindowTable;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of the pattern evaluation, over the line planes kept by {@link Game}.
+ * <p>
+ * Each lane holds the window starting at its plane position: the stone counts of both players
+ * are sums of K shifted loads of their planes, and the open flanks the sum of two loads of the
+ * empty plane. Every window of the board is scored without looking at its lines. The weight of
+ * a window is looked up by shuffling a vector of weights indexed by stones * 3 + open flanks,
+ * split in two 7-bit halves so that every step works on bytes.
+ * <p>
+ * Compiling and running it needs <code>--add-modules jdk.incubator.vector</code>.
+ */
+public final class VectorWindowScorer implements WindowScorer {
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    // Chunks summed in the short accumulators before they are reduced: 127 per lane each
+    private static final int FLUSH = 8;
+
+    private final WindowTable table;
+    private final int K;
+    private final ByteVector low, high; // weights, 7 bits each
+
+    public VectorWindowScorer(WindowTable table, int[] weights) {
+        if (weights.length > BYTES.length())
+            throw new IllegalArgumentException("Too many weights for " + BYTES);
+        byte[] low = new byte[BYTES.length()], high = new byte[BYTES.length()];
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0 || weights[i] >= 1 << 14)
+                throw new IllegalArgumentException("Weights must be in [0, 16384)");
+            low[i] = (byte) (weights[i] & 127);
+            high[i] = (byte) (weights[i] >> 7);
+        }
+        this.table = table;
+        this.K = table.K;
+        this.low = ByteVector.fromArray(BYTES, low, 0);
+        this.high = ByteVector.fromArray(BYTES, high, 0);
+    }
+
+    @Override
+    public int score(Game game) {
+        final byte[] first = game.getFirstPlane(), second = game.getSecondPlane(), empty = game.getEmptyPlane();
+        final byte[] starts = table.windowStarts;
+        final ByteVector zero = ByteVector.zero(BYTES);
+
+        ShortVector low0 = ShortVector.zero(ShortVector.SPECIES_PREFERRED), low1 = low0, high0 = low0, high1 = low0;
+        int total = 0, chunks = 0;
+        for (int base = 1; base < table.planeLength; base += BYTES.length()) {
+            ByteVector ones = ByteVector.fromArray(BYTES, first, base);
+            ByteVector twos = ByteVector.fromArray(BYTES, second, base);
+            for (int k = 1; k < K; k++) {
+                ones = ones.add(ByteVector.fromArray(BYTES, first, base + k));
+                twos = twos.add(ByteVector.fromArray(BYTES, second, base + k));
+            }
+            VectorMask<Byte> window = ByteVector.fromArray(BYTES, starts, base).compare(VectorOperators.NE, 0);
+            VectorMask<Byte> firstLive = window.and(twos.compare(VectorOperators.EQ, 0)).and(ones.compare(VectorOperators.GT, 0));
+            VectorMask<Byte> secondLive = window.and(ones.compare(VectorOperators.EQ, 0)).and(twos.compare(VectorOperators.GT, 0));
+            if (!firstLive.or(secondLive).anyTrue()) continue;
+
+            ByteVector open = ByteVector.fromArray(BYTES, empty, base - 1).add(ByteVector.fromArray(BYTES, empty, base + K));
+            VectorShuffle<Byte> index = ones.add(twos).mul((byte) 3).add(open).toShuffle();
+            ByteVector lo = low.rearrange(index), hi = high.rearrange(index);
+            // Second player windows count negatively, dead and empty ones not at all
+            lo = zero.blend(lo, firstLive).blend(lo.neg(), secondLive);
+            hi = zero.blend(hi, firstLive).blend(hi.neg(), secondLive);
+
+            low0 = low0.add(lo.convert(VectorOperators.B2S, 0));
+            low1 = low1.add(lo.convert(VectorOperators.B2S, 1));
+            high0 = high0.add(hi.convert(VectorOperators.B2S, 0));
+            high1 = high1.add(hi.convert(VectorOperators.B2S, 1));
+            if (++chunks == FLUSH) {
+                total += reduce(low0, low1, high0, high1);
+                low0 = low1 = high0 = high1 = ShortVector.zero(ShortVector.SPECIES_PREFERRED);
+                chunks = 0;
+            }
+        }
+        return total + reduce(low0, low1, high0, high1);
+    }
+
+    private static int reduce(ShortVector low0, ShortVector low1, ShortVector high0, ShortVector high1) {
+        return low0.reduceLanes(VectorOperators.ADD) + low1.reduceLanes(VectorOperators.ADD)
+                + 128 * (high0.reduceLanes(VectorOperators.ADD) + high1.reduceLanes(VectorOperators.ADD));
+    }
+}
@@ -24,8 +24,7 @@ package mnkgame;
 
 import java.lang.IndexOutOfBoundsException;
 import java.lang.IllegalStateException;
-import java.util.LinkedList;
-import java.util.HashSet;
+import java.util.Arrays;
 
 /**
  * Board for an (M,N,K)-game.
@@ -34,6 +33,22 @@ import java.util.HashSet;
  * list of moves and allows undoes.
  * 
  * </p> 
+ * <p>
+ * Cells are addressed internally by their index <code>i*N+j</code>. Free cells are kept in
+ * an array where a marked cell is swapped past the end of the free region, so that both
+ * <code>markCell</code> and <code>unmarkCell</code> take constant time and allocate nothing.
+ * Cells returned by the board are the shared instances of <code>MNKCellCache</code>.
+ * </p>
+ * <p>
+ * The board also counts, for each player, the K-windows (K aligned cells) holding no symbol
+ * of the adversary: when no such window is left for either player, the game can only end in
+ * a draw (see <code>isDeadDraw</code>).
+ * </p>
+ * <p>
+ * The Zobrist key of the position (see <code>MNKZobrist</code>) is kept up to date by
+ * <code>markCell</code> and <code>unmarkCell</code>: equal positions of the same geometry have
+ * equal keys, in any process.
+ * </p>
  */
 public class MNKBoard {
 	/**
@@ -49,9 +64,22 @@ public class MNKBoard {
    */
 	public final int K;
 
-	protected final MNKCellState[][]    B;
-	protected final LinkedList<MNKCell> MC;  // Marked Cells
-	protected final HashSet<MNKCell>    FC;  // Free Cells
+	protected final MNKCellState[][] B;
+	protected final int[]            MC;     // Marked Cells, in move order
+	protected final int[]            FC;     // Free Cells, the first freeCount entries
+	protected final int[]            FCpos;  // Position of each cell in FC
+
+	protected int                    markedCount;
+	protected int                    freeCount;
+
+	private final MNKCellCache       cells;  // Shared cells for this geometry
+	private final MNKZobrist         zobrist;
+	protected long                   hash;   // Zobrist key of the marked cells
+
+	protected final int[]            cellWinStart; // Windows of each cell c: cellWin[cellWinStart[c]..cellWinStart[c+1]-1]
+	protected final int[]            cellWin;
+	protected final int[][]          winStones;    // Symbols of each player in each window
+	protected final int[]            openWindows = new int[2]; // Windows free of the adversary's symbols
 
 	private final MNKCellState[] Player = {MNKCellState.P1,MNKCellState.P2};
 
@@ -77,23 +105,59 @@ public class MNKBoard {
 		this.N  = N;
 		this.K  = K;
 
-		B  = new MNKCellState[M][N];
-		// Initial capacity large enough to assure load factor < 0.75
-		FC = new HashSet<MNKCell>((int) Math.ceil((M*N) / 0.75)); 
-		MC = new LinkedList<MNKCell>();
+		B     = new MNKCellState[M][N];
+		FC    = new int[M*N];
+		FCpos = new int[M*N];
+		MC    = new int[M*N];
+
+		cells   = MNKCellCache.forGeometry(M,N);
+		zobrist = MNKZobrist.forGeometry(M,N);
+
+		// Windows start at every cell where K cells fit along a direction
+		int[][] D = {{0,1},{1,0},{1,1},{1,-1}};
+		int[] count = new int[M*N+1];
+		int windows = 0;
+		for(int[] d : D)
+			for(int i = 0; i < M; i++)
+				for(int j = 0; j < N; j++)
+					if(fits(i,j,d)) {
+						for(int k = 0; k < K; k++) count[(i+k*d[0])*N+j+k*d[1]+1]++;
+						windows++;
+					}
+		cellWinStart = new int[M*N+1];
+		for(int c = 0; c < M*N; c++) cellWinStart[c+1] = cellWinStart[c] + count[c+1];
+		cellWin   = new int[cellWinStart[M*N]];
+		winStones = new int[2][windows];
+		int[] fill = cellWinStart.clone();
+		int w = 0;
+		for(int[] d : D)
+			for(int i = 0; i < M; i++)
+				for(int j = 0; j < N; j++)
+					if(fits(i,j,d)) {
+						for(int k = 0; k < K; k++) cellWin[fill[(i+k*d[0])*N+j+k*d[1]]++] = w;
+						w++;
+					}
 
 		reset();
 	}
 
+	// True if the K cells from i,j along direction d are inside the board
+	private boolean fits(int i, int j, int[] d) {
+		int ei = i + (K-1)*d[0], ej = j + (K-1)*d[1];
+		return ei < M && ej >= 0 && ej < N;
+	}
+
 	/**
  	 * Resets the MNKBoard
 	 */
 	public void reset() {
 		currentPlayer = 0;
 		gameState     = MNKGameState.OPEN;
+		hash          = 0;
 		initBoard();
 		initFreeCellList();
 		initMarkedCellList();
+		initWindows();
 	}
 	
 	/**
@@ -149,19 +213,32 @@ public class MNKBoard {
 		} else if(B[i][j] != MNKCellState.FREE) {
 			throw new IllegalStateException("Cell " + i +"," + j + " is not free");
 		} else {
-			MNKCell oldc = new MNKCell(i,j,B[i][j]);
-			MNKCell newc = new MNKCell(i,j,Player[currentPlayer]);
+			int c = i*N+j;
 
 			B[i][j] = Player[currentPlayer];
 
-			FC.remove(oldc);
-			MC.add(newc);
+			// Swap the cell with the last free one and shrink the free region
+			int p    = FCpos[c];
+			int last = FC[--freeCount];
+			FC[p]            = last;
+			FCpos[last]      = p;
+			FC[freeCount]    = c;
+			FCpos[c]         = freeCount;
+			MC[markedCount++] = c;
+			hash ^= zobrist.key(c,currentPlayer);
+
+			// Windows through c are no longer open for the adversary
+			int[] own = winStones[currentPlayer];
+			for(int w = cellWinStart[c]; w < cellWinStart[c+1]; w++) {
+				int x = cellWin[w];
+				if(own[x]++ == 0) openWindows[1-currentPlayer]--;
+			}
 			
 			currentPlayer = (currentPlayer + 1) % 2;
 
 			if(isWinningCell(i,j))
 				gameState =  B[i][j] == MNKCellState.P1 ? MNKGameState.WINP1 : MNKGameState.WINP2;
-			else if(FC.isEmpty())
+			else if(freeCount == 0)
 				gameState = MNKGameState.DRAW;
 			
 			return gameState;
@@ -174,20 +251,58 @@ public class MNKBoard {
    * @throws IllegalStateException If there is no move to undo
    */
 	public void unmarkCell() throws IllegalStateException {
-		if(MC.size() == 0) {
+		if(markedCount == 0) {
 			throw new IllegalStateException("No move to undo");
 		} else {
-			MNKCell oldc = MC.removeLast();
-			MNKCell newc = new MNKCell(oldc.i,oldc.j,MNKCellState.FREE);
+			int c = MC[--markedCount];
 
-			B[oldc.i][oldc.j] = MNKCellState.FREE;
+			B[c / N][c % N] = MNKCellState.FREE;
 			
-			FC.add(newc);
+			// Undoes are LIFO: the cell is still right past the free region
+			freeCount++;
 			currentPlayer = (currentPlayer + 1) % 2;
 			gameState     = MNKGameState.OPEN;
+			hash ^= zobrist.key(c,currentPlayer);
+
+			int[] own = winStones[currentPlayer];
+			for(int w = cellWinStart[c]; w < cellWinStart[c+1]; w++) {
+				int x = cellWin[w];
+				if(--own[x] == 0) openWindows[1-currentPlayer]++;
+			}
 		}
 	}
 
+	/**
+	 * Returns the Zobrist key of the current position, maintained incrementally
+	 *
+	 * @return 64-bit key, equal for equal positions of the same geometry
+	 */
+	public long zobristKey() {
+		return hash;
+	}
+
+	/**
+	 * Returns the number of K-windows holding no symbol of the adversary of a player,
+	 * i.e. the alignments the player can still complete.
+	 *
+	 * @param player 0 (first player) or 1 (second player)
+	 *
+	 * @return Number of windows open for <code>player</code>
+	 */
+	public int openWindows(int player) {
+		return openWindows[player];
+	}
+
+	/**
+	 * Returns true if no player can complete an alignment any more: the game, if still open,
+	 * can only end in a draw.
+	 *
+	 * @return <code>true</code> if every K-window holds symbols of both players
+	 */
+	public boolean isDeadDraw() {
+		return openWindows[0] == 0 && openWindows[1] == 0;
+	}
+
 	/**
 	 * Returns the marked cells list in array format.
 	 * <p>This is the history of the game: the first move is in the
@@ -195,7 +310,23 @@ public class MNKBoard {
 	 * @return List of marked cells
 	 */ 
 	public MNKCell[] getMarkedCells() {
-		return MC.toArray(new MNKCell[MC.size()]);
+		MNKCell[] list = new MNKCell[markedCount];
+		for(int k = 0; k < markedCount; k++) {
+			int c = MC[k];
+			list[k] = cells.get(c,B[c / N][c % N]);
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the last marked cell, without copying the move history.
+	 *
+	 * @return Last marked cell, or <code>null</code> if no move has been played
+	 */
+	public MNKCell getLastMarkedCell() {
+		if(markedCount == 0) return null;
+		int c = MC[markedCount-1];
+		return cells.get(c,B[c / N][c % N]);
 	}
 
 	/**
@@ -204,7 +335,10 @@ public class MNKBoard {
 	 * @return List of free cells
 	 */
 	public MNKCell[] getFreeCells() {
-		return FC.toArray(new MNKCell[FC.size()]);
+		MNKCell[] list = new MNKCell[freeCount];
+		for(int k = 0; k < freeCount; k++)
+			list[k] = cells.get(FC[k],MNKCellState.FREE);
+		return list;
 	}
 
 	// Sets to free all board cells
@@ -214,17 +348,26 @@ public class MNKBoard {
 				B[i][j] = MNKCellState.FREE;
 	}
 
-	// Rebuilds the free cells set 
+	// Rebuilds the free cells array 
 	private void initFreeCellList() {
-		this.FC.clear();
-		for(int i = 0; i < M; i++)
-			for(int j = 0; j < N; j++)
-				this.FC.add(new MNKCell(i,j));
+		for(int c = 0; c < M*N; c++) {
+			FC[c]    = c;
+			FCpos[c] = c;
+		}
+		freeCount = M*N;
 	}
 
 	// Resets the marked cells list
 	private void initMarkedCellList() {
-		this.MC.clear();
+		markedCount = 0;
+	}
+
+	// Empties every window
+	private void initWindows() {
+		for(int p = 0; p < 2; p++) {
+			Arrays.fill(winStones[p],0);
+			openWindows[p] = winStones[p].length;
+		}
 	}
 
 	// Check winning state from cell i, j
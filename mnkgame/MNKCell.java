@@ -24,8 +24,13 @@ package mnkgame;
 
 /**
  * Describes the state of a cell in the <code>MNKBoard</code>.
+ * <p>
+ * Cells are immutable: use <code>MNKCellCache</code> to get shared instances
+ * instead of allocating new ones.
+ * </p>
  * 
  * @see MNKBoard MNKBoard
+ * @see MNKCellCache MNKCellCache
  */
 public class MNKCell {
 	/**
@@ -70,8 +75,8 @@ public class MNKCell {
 
 	@Override
 	public boolean equals(Object o) {
-		if(o == null)               return false;
 		if(o == this)               return true; 	
+		if(o == null)               return false;
 		if(!(o instanceof MNKCell)) return false;
 
 		MNKCell c = (MNKCell) o;
@@ -81,7 +86,7 @@ public class MNKCell {
 
 	@Override
 	public int hashCode() {
-		return this.toString().hashCode();
+		return (31 * this.i + this.j) * 3 + this.state.ordinal();
 	}
 
 	@Override
@@ -0,0 +1,112 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical <code>MNKCell</code> instances for a board geometry.
+ * <p>
+ * <code>MNKCell</code> is immutable, so one instance for each (i,j,state) triple is enough.
+ * The cache for a given (M,N) pair is built once and shared by every board and player
+ * using that geometry: steady-state play does not allocate cells.
+ * </p>
+ *
+ * @see MNKCell MNKCell
+ */
+public final class MNKCellCache {
+	private static final ConcurrentHashMap<Long,MNKCellCache> caches = new ConcurrentHashMap<Long,MNKCellCache>();
+
+	/**
+   * Board rows
+   */
+	public final int M;
+	/**
+   * Board columns
+   */
+	public final int N;
+
+	private final MNKCell[][] cells; // indexed by state and cell index i*N+j
+
+	private MNKCellCache(int M, int N) {
+		this.M = M;
+		this.N = N;
+
+		MNKCellState[] states = MNKCellState.values();
+		cells = new MNKCell[states.length][M*N];
+		for(MNKCellState s : states)
+			for(int i = 0; i < M; i++)
+				for(int j = 0; j < N; j++)
+					cells[s.ordinal()][i*N+j] = new MNKCell(i,j,s);
+	}
+
+	/**
+	 * Returns the shared cache for an MxN board
+	 *
+	 * @param M Board rows
+	 * @param N Board columns
+	 *
+	 * @return Cell cache for the (M,N) geometry
+	 * @throws IllegalArgumentException If M,N are smaller than 1
+	 */
+	public static MNKCellCache forGeometry(int M, int N) throws IllegalArgumentException {
+		if (M <= 0) throw new IllegalArgumentException("M cannot be smaller than 1");
+		if (N <= 0) throw new IllegalArgumentException("N cannot be smaller than 1");
+
+		return caches.computeIfAbsent(((long) M << 32) | N, key -> new MNKCellCache(M,N));
+	}
+
+	/**
+	 * Returns the canonical cell <code>i,j</code> with the given state
+	 *
+	 * @param i cell row index
+	 * @param j cell column index
+	 * @param state cell state
+	 *
+	 * @return Shared cell instance
+	 * @throws IndexOutOfBoundsException If <code>i,j</code> are out of matrix bounds
+	 */
+	public MNKCell get(int i, int j, MNKCellState state) throws IndexOutOfBoundsException {
+		if(i < 0 || i >= M || j < 0 || j >= N)
+			throw new IndexOutOfBoundsException("Indexes " + i + "," + j + " are out of matrix bounds");
+		return cells[state.ordinal()][i*N+j];
+	}
+
+	/**
+	 * Returns the canonical free cell <code>i,j</code>
+	 *
+	 * @param i cell row index
+	 * @param j cell column index
+	 *
+	 * @return Shared cell instance
+	 * @throws IndexOutOfBoundsException If <code>i,j</code> are out of matrix bounds
+	 */
+	public MNKCell get(int i, int j) throws IndexOutOfBoundsException {
+		return get(i,j,MNKCellState.FREE);
+	}
+
+	// Unchecked access by cell index, for MNKBoard
+	MNKCell get(int c, MNKCellState state) {
+		return cells[state.ordinal()][c];
+	}
+}
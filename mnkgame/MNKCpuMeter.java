@@ -0,0 +1,105 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CPU time used by the threads of a thread group, sampled through <code>ThreadMXBean</code>.
+ * <p>
+ * Threads created by a thread of the group belong to the group unless told otherwise, so the
+ * threads a player starts are counted along with the one calling it. A thread is only seen
+ * while alive: the time a thread uses after the last sample before it ends is lost, as is
+ * the time of threads outside the group (for instance those of the common fork-join pool).
+ * </p>
+ */
+public class MNKCpuMeter {
+	private static final ThreadMXBean MX = ManagementFactory.getThreadMXBean();
+
+	private final ThreadGroup     group;
+	private Map<Long,Long>        last = new HashMap<Long,Long>(); // CPU time of each thread at the last sample
+	private long                  total;
+	private int                   threads;
+
+	/**
+	 * Creates a meter for the threads of a group, enabling CPU time measurement if needed
+	 *
+	 * @param group Thread group to measure
+	 */
+	public MNKCpuMeter(ThreadGroup group) {
+		this.group = group;
+		if(isSupported() && !MX.isThreadCpuTimeEnabled()) MX.setThreadCpuTimeEnabled(true);
+	}
+
+	/**
+	 * Returns true if the JVM can measure the CPU time of threads
+	 *
+	 * @return <code>true</code> if CPU time is available
+	 */
+	public static boolean isSupported() {
+		return MX.isThreadCpuTimeSupported();
+	}
+
+	/**
+	 * Returns the measured thread group
+	 *
+	 * @return thread group
+	 */
+	public ThreadGroup group() {
+		return group;
+	}
+
+	/**
+	 * Adds the CPU time used by the threads of the group since the previous sample
+	 *
+	 * @return CPU time used since the meter was created, in nanoseconds
+	 */
+	public synchronized long sample() {
+		Thread[] T = new Thread[group.activeCount() + 8];
+		int n = group.enumerate(T);
+		Map<Long,Long> now = new HashMap<Long,Long>();
+		for(int k = 0; k < n; k++) {
+			long id  = T[k].getId();
+			long cpu = MX.getThreadCpuTime(id);
+			if(cpu < 0) continue; // ended or not measurable
+			Long before = last.get(id);
+			total += cpu - (before == null ? 0 : before);
+			now.put(id,cpu);
+		}
+		last    = now;
+		threads = n;
+		return total;
+	}
+
+	/**
+	 * Returns the number of live threads of the group at the last sample
+	 *
+	 * @return thread count
+	 */
+	public synchronized int threads() {
+		return threads;
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Hosts an MNKPlayer in a long-lived process, driven by a line-based text protocol,
+ * so that one warm JVM can play any number of games.
+ * <p>
+ * Usage: MNKEngineServer [-p &lt;port&gt;] &lt;MNKPlayer class name&gt;<br>
+ * Without <code>-p</code> the protocol runs on the standard input and output. With <code>-p</code>
+ * the server accepts connections on the loopback interface, each one served by its own
+ * instance of the player.
+ * </p>
+ * <p>
+ * Commands, one per line:
+ * <ul>
+ * <li><code>name</code>: answers <code>name &lt;player name&gt;</code></li>
+ * <li><code>newgame M N K first|second timeout</code>: initializes the player, answers <code>ready</code></li>
+ * <li><code>move i j</code>: the adversary marked the cell (i,j)</li>
+ * <li><code>go [timeout]</code>: the player selects its move within timeout seconds, by default
+ *     the timeout of the game; answers zero or more <code>info depth d move i j</code> lines, then
+ *     <code>bestmove i j</code>. A timeout needs a player implementing <code>MNKTimedPlayer</code></li>
+ * <li><code>stop</code>: interrupts the running <code>go</code>, which still answers <code>bestmove</code></li>
+ * <li><code>quit</code>: interrupts the running <code>go</code>, waits for its answer and closes the session</li>
+ * </ul>
+ * A failed command answers <code>error &lt;message&gt;</code>, which also ends a <code>go</code>.
+ * Only <code>name</code>, <code>stop</code> and <code>quit</code> are accepted while a <code>go</code> runs.
+ * </p>
+ */
+public class MNKEngineServer {
+	private final MNKPlayer      P;
+	private final BufferedReader in;
+	private final PrintWriter    out;
+
+	private MNKBoard B;
+	private int      timeout; // of the game, in seconds
+	private Thread   search;  // running go, null if none
+
+	public MNKEngineServer(MNKPlayer P, BufferedReader in, PrintWriter out) {
+		this.P   = P;
+		this.in  = in;
+		this.out = out;
+	}
+
+	private synchronized void send(String line) {
+		out.println(line);
+		out.flush();
+	}
+
+	/**
+	 * Serves commands until <code>quit</code> or the end of the input
+	 */
+	public void serve() throws IOException {
+		String line;
+		while((line = in.readLine()) != null) {
+			String[] cmd = line.trim().split("\\s+");
+			try {
+				switch(cmd[0]) {
+					case "":
+						break;
+					case "name":
+						send("name " + P.playerName());
+						break;
+					case "stop":
+						stop();
+						break;
+					case "quit":
+						stopAndWait();
+						return;
+					case "newgame":
+						checkIdle();
+						newGame(cmd);
+						break;
+					case "move":
+						checkIdle();
+						move(cmd);
+						break;
+					case "go":
+						checkIdle();
+						go(cmd);
+						break;
+					default:
+						send("error unknown command " + cmd[0]);
+				}
+			}
+			catch(RuntimeException e) {
+				send("error " + e.getMessage());
+			}
+		}
+		stop();
+	}
+
+	private synchronized void checkIdle() {
+		if(search != null) throw new IllegalStateException("busy");
+	}
+
+	private synchronized void stop() {
+		if(search != null) search.interrupt();
+	}
+
+	/**
+	 * Interrupts the running go, if any, and waits until it has answered
+	 */
+	private void stopAndWait() {
+		Thread running;
+		synchronized(this) {
+			running = search;
+		}
+		if(running == null) return;
+		running.interrupt();
+		try {
+			running.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void newGame(String[] cmd) {
+		if(cmd.length != 6) throw new IllegalArgumentException("usage: newgame M N K first|second timeout");
+		int M = Integer.parseInt(cmd[1]);
+		int N = Integer.parseInt(cmd[2]);
+		int K = Integer.parseInt(cmd[3]);
+		timeout = Integer.parseInt(cmd[5]);
+		B = new MNKBoard(M,N,K);
+		P.initPlayer(M,N,K,cmd[4].equals("first"),timeout);
+		if(P instanceof MNKProgressReporter)
+			((MNKProgressReporter) P).setProgressListener((depth, c) -> send("info depth " + depth + " move " + c.i + " " + c.j));
+		send("ready");
+	}
+
+	private void move(String[] cmd) {
+		if(B == null) throw new IllegalStateException("no game");
+		if(cmd.length != 3) throw new IllegalArgumentException("usage: move i j");
+		int i = Integer.parseInt(cmd[1]);
+		int j = Integer.parseInt(cmd[2]);
+		B.markCell(i,j);
+		if(P instanceof MNKIncrementalPlayer) ((MNKIncrementalPlayer) P).onOpponentMove(i,j);
+	}
+
+	private synchronized void go(String[] cmd) {
+		if(B == null) throw new IllegalStateException("no game");
+		if(B.gameState() != MNKGameState.OPEN) throw new IllegalStateException("game over");
+		if(cmd.length > 2) throw new IllegalArgumentException("usage: go [timeout]");
+		if(cmd.length == 2) {
+			int moveTimeout = Integer.parseInt(cmd[1]);
+			if(moveTimeout <= 0) throw new IllegalArgumentException("timeout must be positive");
+			if(!(P instanceof MNKTimedPlayer)) throw new IllegalStateException("player does not take a move timeout");
+			((MNKTimedPlayer) P).setMoveTimeout(moveTimeout);
+		} else if(P instanceof MNKTimedPlayer) {
+			((MNKTimedPlayer) P).setMoveTimeout(timeout);
+		}
+		search = new Thread(() -> {
+			String answer;
+			try {
+				MNKCell c = P instanceof MNKIncrementalPlayer ? ((MNKIncrementalPlayer) P).selectMove()
+				                                              : P.selectCell(B.getFreeCells(),B.getMarkedCells());
+				B.markCell(c.i,c.j);
+				answer = "bestmove " + c.i + " " + c.j;
+			}
+			catch(Exception e) {
+				answer = "error " + e;
+			}
+			synchronized(this) {
+				search = null;
+				send(answer);
+			}
+		}, "go");
+		search.start();
+	}
+
+	private static MNKPlayer newPlayer(String name) throws ReflectiveOperationException {
+		return (MNKPlayer) Class.forName(name).getDeclaredConstructor().newInstance();
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length != 1 && !(args.length == 3 && args[0].equals("-p"))) {
+			System.err.println("Usage: MNKEngineServer [-p <port>] <MNKPlayer class name>");
+			System.exit(1);
+		}
+		final String name = args[args.length-1];
+
+		if(args.length == 1) {
+			BufferedReader in  = new BufferedReader(new InputStreamReader(System.in));
+			PrintWriter    out = new PrintWriter(new OutputStreamWriter(System.out));
+			new MNKEngineServer(newPlayer(name),in,out).serve();
+			System.exit(0); // a player may have left threads behind
+		}
+
+		ServerSocket server = new ServerSocket(Integer.parseInt(args[1]),50,InetAddress.getLoopbackAddress());
+		System.err.println("Serving " + name + " on " + server.getLocalSocketAddress());
+		while(true) {
+			final Socket    socket = server.accept();
+			final MNKPlayer player = newPlayer(name);
+			new Thread(() -> {
+				try(Socket s = socket) {
+					BufferedReader in  = new BufferedReader(new InputStreamReader(s.getInputStream()));
+					PrintWriter    out = new PrintWriter(new OutputStreamWriter(s.getOutputStream()));
+					new MNKEngineServer(player,in,out).serve();
+				}
+				catch(IOException e) {
+					System.err.println("Connection closed: " + e);
+				}
+			}, "session").start();
+		}
+	}
+}
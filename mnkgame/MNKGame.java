@@ -27,6 +27,7 @@ import java.awt.event.*;
 import javax.swing.*;
 import java.lang.reflect.*;
 import java.util.Random;
+import java.util.List;
 
 import java.util.concurrent.Future;
 import java.util.concurrent.Executors;
@@ -73,6 +74,9 @@ public class MNKGame extends JFrame {
 	private static MNKPlayer[] ComPlayer = new MNKPlayer[2];
 	private final int TIMEOUT = 10; // 10 seconds timeout
 
+	// Software player turn in progress, null if none: accessed on the event thread only
+	private MNKMouseAdapter.EngineTurn engine;
+
 	// Random number generator
 	private Random Rand = new Random(System.currentTimeMillis());
 
@@ -126,12 +130,20 @@ public class MNKGame extends JFrame {
 			}
 	
 			public MNKCell call() throws ExecutionException {
+				if(P instanceof MNKIncrementalPlayer) {
+					MNKIncrementalPlayer IP = (MNKIncrementalPlayer) P;
+					MNKCell last = B.getLastMarkedCell();
+					if(last != null) IP.onOpponentMove(last.i,last.j);
+					return IP.selectMove();
+				}
 				return P.selectCell(B.getFreeCells(),B.getMarkedCells());
 			}
 		}
 
 		@Override
 		public void mouseClicked(MouseEvent e) {  // mouse-clicked handler
+			if(engine != null) return; // ignore clicks while a software player is thinking
+
 			int X = e.getX();
 			int Y = e.getY();
 			int i = Y / CELL_SIZE;
@@ -139,47 +151,137 @@ public class MNKGame extends JFrame {
 
 			if(B.gameState() == MNKGameState.OPEN) {	// Keep playing
 				if(Player[B.currentPlayer()] == MNKPlayerType.HUMAN) { // Human player
-						if (B.cellState(i,j) == MNKCellState.FREE)	// if position is already marked do nothing, wait for next click
+						if (i < B.M && j < B.N && B.cellState(i,j) == MNKCellState.FREE) {	// if position is already marked do nothing, wait for next click
 							B.markCell(i,j);
+							repaintCell(i,j);
+						}
 				} else { // Software player
-					int  curr = B.currentPlayer();
-					final ExecutorService executor = Executors.newSingleThreadExecutor();
-					final Future<MNKCell> task     = executor.submit(new StoppablePlayer(ComPlayer[curr],B));
-					executor.shutdown(); // Makes the  ExecutorService stop accepting new tasks
+					engine = new EngineTurn(B.currentPlayer());
+					engine.execute();
+				}
+				updateStatus();
+			} else { // Restart game
+				initGame();
+			}
+		}
 
-					MNKCell c = null;
+		/**
+		 * Runs the software player off the event thread, reporting its progress in the status bar
+		 */
+		private class EngineTurn extends SwingWorker<MNKCell,String> implements MNKProgressListener {
+			private final int curr;
 
-					try { 
-						// TIMEOUT secs + 10% more time
-  					c = task.get((int)(TIMEOUT+0.1*TIMEOUT), TimeUnit.SECONDS);
-					}
-					catch(TimeoutException ex) {
-						executor.shutdownNow();	
-						System.err.println(ComPlayer[curr].playerName() + " interrupted due to timeout");
-						System.exit(1);
-					}
-					catch (Exception ex) { 
-						System.err.println("Error: " + ComPlayer[curr].playerName() + " interrupted due to exception");
-						System.err.println(" " + ex);
-						System.exit(1);
-					}
-					if (!executor.isTerminated())
-    				executor.shutdownNow(); 
+			public EngineTurn(int curr) {
+				this.curr = curr;
+			}
 
-					if(B.cellState(c.i,c.j) == MNKCellState.FREE) {
-						B.markCell(c.i,c.j);
-					} else {
-						System.err.println(ComPlayer[curr].playerName() + "  selected an illegal move!");
-						System.exit(1);
-       		}
+			@Override
+			public void progress(int depth, MNKCell best) {
+				publish("depth " + depth + ", best (" + best.i + "," + best.j + ")");
+			}
+
+			@Override
+			protected MNKCell doInBackground() {
+				if(ComPlayer[curr] instanceof MNKProgressReporter)
+					((MNKProgressReporter) ComPlayer[curr]).setProgressListener(this);
+
+				final ExecutorService executor = Executors.newSingleThreadExecutor();
+				final Future<MNKCell> task     = executor.submit(new StoppablePlayer(ComPlayer[curr],B));
+				executor.shutdown(); // Makes the  ExecutorService stop accepting new tasks
+
+				MNKCell c = null;
+
+				try { 
+					// TIMEOUT secs + 10% more time
+					c = task.get((int)(TIMEOUT+0.1*TIMEOUT), TimeUnit.SECONDS);
 				}
-			} else { // Restart game
-				initGame();
+				catch(TimeoutException ex) {
+					executor.shutdownNow();	
+					System.err.println(ComPlayer[curr].playerName() + " interrupted due to timeout");
+					System.exit(1);
+				}
+				catch (Exception ex) { 
+					System.err.println("Error: " + ComPlayer[curr].playerName() + " interrupted due to exception");
+					System.err.println(" " + ex);
+					System.exit(1);
+				}
+				finally {
+					if(ComPlayer[curr] instanceof MNKProgressReporter)
+						((MNKProgressReporter) ComPlayer[curr]).setProgressListener(null);
+				}
+				if (!executor.isTerminated())
+					executor.shutdownNow(); 
+				return c;
+			}
+
+			@Override
+			protected void process(List<String> chunks) {
+				if(engine == this)
+					statusBar.setText(symbol(curr) + "'s Turn (" + ComPlayer[curr].playerName() + ") - Thinking: " + chunks.get(chunks.size()-1));
+			}
+
+			@Override
+			protected void done() {
+				MNKCell c = null;
+				try {
+					c = get();
+				}
+				catch (Exception ex) { 
+					System.err.println("Error: " + ComPlayer[curr].playerName() + " interrupted due to exception");
+					System.err.println(" " + ex);
+					System.exit(1);
+				}
+				engine = null;
+
+				if(B.cellState(c.i,c.j) == MNKCellState.FREE) {
+					B.markCell(c.i,c.j);
+					repaintCell(c.i,c.j);
+				} else {
+					System.err.println(ComPlayer[curr].playerName() + "  selected an illegal move!");
+					System.exit(1);
+				}
+				updateStatus();
 			}
-			repaint();
 		}
 	} 
 
+	/** Repaints only the area of the given cell */
+	private void repaintCell(int i, int j) {
+		board.repaint(j * CELL_SIZE, i * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+	}
+
+	private static String symbol(int player) {
+		return player == 0 ? "X" : "O";
+	}
+
+	private String playerName(int player) {
+		return Player[player] == MNKPlayerType.COMPUTER ? ComPlayer[player].playerName() : "Human";
+	}
+
+	/** Prints the status-bar message */
+	private void updateStatus() {
+		switch(B.gameState()) {
+			case OPEN:
+				statusBar.setForeground(Color.BLACK);
+				String msg = Player[B.currentPlayer()] == MNKPlayerType.COMPUTER ? "Click to run" : "Click to select";
+				if(engine != null) msg = "Thinking...";
+				statusBar.setText(symbol(B.currentPlayer()) + "'s Turn (" + playerName(B.currentPlayer()) + ") - " + msg);
+				break;
+			case DRAW:
+				statusBar.setForeground(Color.RED);
+				statusBar.setText("Draw! Click to play again.");
+				break;
+			case WINP1:
+				statusBar.setForeground(Color.RED);
+				statusBar.setText("X (" + playerName(0) + ") Won! Click to play again.");
+				break;
+			case WINP2:
+				statusBar.setForeground(Color.RED);
+				statusBar.setText("O (" + playerName(1) + ") Won! Click to play again.");
+				break;
+		}
+	}
+
 	private void selectPlayerTurn() {
 		if(Player[0] == null) { 
 			if(gameType == MNKGameType.HUMANvsHUMAN) {
@@ -244,26 +346,39 @@ public class MNKGame extends JFrame {
 		setTitle("(" + B.M + "," + B.N + "," + B.K + ")-Game   " + P1 + " vs " + P2);
     setVisible(true);  // show this JFrame
 			
+		updateStatus();
 		repaint();
 	}
  
  
 	/**
 	 *  Inner class for custom graphics drawing.
+	 *  Only the cells intersecting the clip area are drawn.
 	 */
 	private class DrawBoard extends JPanel {
+		public DrawBoard() {
+			setBackground(Color.WHITE); // set its background color
+		}
+
 		@Override
 		public void paintComponent(Graphics g) {  // invoke via repaint()
 			super.paintComponent(g);    // fill background
-			setBackground(Color.WHITE); // set its background color
+
+			// Cells intersecting the clip area
+			Rectangle clip = g.getClipBounds();
+			if(clip == null) clip = new Rectangle(0, 0, BOARD_WIDTH, BOARD_HEIGHT);
+			int minRow = Math.max(0, clip.y / CELL_SIZE);
+			int maxRow = Math.min(B.M - 1, (clip.y + clip.height) / CELL_SIZE);
+			int minCol = Math.max(0, clip.x / CELL_SIZE);
+			int maxCol = Math.min(B.N - 1, (clip.x + clip.width) / CELL_SIZE);
  
 			// Draw the grid-lines
 			g.setColor(Color.LIGHT_GRAY);
-			for (int row = 1; row < B.M; ++row) {
+			for (int row = Math.max(1, minRow); row <= Math.min(B.M - 1, maxRow + 1); ++row) {
 				g.fillRoundRect(0, CELL_SIZE * row - GRID_WIDTH_HALF,
 					BOARD_WIDTH-1, GRID_WIDTH, GRID_WIDTH, GRID_WIDTH);
 			}
-			for (int col = 1; col < B.N; ++col) {
+			for (int col = Math.max(1, minCol); col <= Math.min(B.N - 1, maxCol + 1); ++col) {
 				g.fillRoundRect(CELL_SIZE * col - GRID_WIDTH_HALF, 0,
 					GRID_WIDTH, BOARD_HEIGHT-1, GRID_WIDTH, GRID_WIDTH);
 			}
@@ -273,48 +388,23 @@ public class MNKGame extends JFrame {
 			g2d.setStroke(new BasicStroke(SYMBOL_STROKE_WIDTH, BasicStroke.CAP_ROUND,
 				BasicStroke.JOIN_ROUND));  
 
-			MNKCell[] list = B.getMarkedCells();
- 
-			for(MNKCell c : list) {
-				int x1 = c.j * CELL_SIZE + CELL_PADDING;
-				int y1 = c.i * CELL_SIZE + CELL_PADDING;
-				MNKCellState s = c.state;
-				if (s == MNKCellState.P1) {
-					g2d.setColor(Color.RED);
-					int x2 = (c.j + 1) * CELL_SIZE - CELL_PADDING;
-					int y2 = (c.i + 1) * CELL_SIZE - CELL_PADDING;
-					g2d.drawLine(x1, y1, x2, y2);
-					g2d.drawLine(x2, y1, x1, y2);
-				} else if(s == MNKCellState.P2) {
-					g2d.setColor(Color.BLUE);
-					g2d.drawOval(x1, y1, SYMBOL_SIZE, SYMBOL_SIZE);
+			for(int i = minRow; i <= maxRow; i++) {
+				for(int j = minCol; j <= maxCol; j++) {
+					int x1 = j * CELL_SIZE + CELL_PADDING;
+					int y1 = i * CELL_SIZE + CELL_PADDING;
+					MNKCellState s = B.cellState(i,j);
+					if (s == MNKCellState.P1) {
+						g2d.setColor(Color.RED);
+						int x2 = (j + 1) * CELL_SIZE - CELL_PADDING;
+						int y2 = (i + 1) * CELL_SIZE - CELL_PADDING;
+						g2d.drawLine(x1, y1, x2, y2);
+						g2d.drawLine(x2, y1, x1, y2);
+					} else if(s == MNKCellState.P2) {
+						g2d.setColor(Color.BLUE);
+						g2d.drawOval(x1, y1, SYMBOL_SIZE, SYMBOL_SIZE);
+					}
 				}
 			} 
-
-			// Print status-bar message
-			switch(B.gameState()) {
-				case OPEN:
-					statusBar.setForeground(Color.BLACK);
-					String symbol = B.currentPlayer() == 0 ? "X" : "O";
-					String msg    = Player[B.currentPlayer()] == MNKPlayerType.COMPUTER ? "Click to run" : "Click to select";
-					String name   = Player[B.currentPlayer()] == MNKPlayerType.COMPUTER ? ComPlayer[B.currentPlayer()].playerName() : "Human";
-					statusBar.setText(symbol + "'s Turn (" + name + ") - " + msg);
-					break;
-				case DRAW:
-					statusBar.setForeground(Color.RED);
-					statusBar.setText("Draw! Click to play again.");
-					break;
-				case WINP1:
-					String name1 = Player[0] == MNKPlayerType.COMPUTER ? ComPlayer[0].playerName() : "Human";
-					statusBar.setForeground(Color.RED);
-					statusBar.setText("X (" + name1 + ") Won! Click to play again.");
-					break;
-				case WINP2:
-					String name2 = Player[1] == MNKPlayerType.COMPUTER ? ComPlayer[1].playerName() : "Human";
-					statusBar.setForeground(Color.RED);
-					statusBar.setText("O (" + name2 + ") Won! Click to play again.");
-					break;
-			}
 		}
 	}
 
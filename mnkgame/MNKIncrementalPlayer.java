@@ -0,0 +1,53 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Optional extension of <code>MNKPlayer</code> for players that track the game themselves.
+ * <p>
+ * Instead of receiving the full free and marked cell arrays on every turn, the player is told
+ * only the last move of the adversary through <code>onOpponentMove</code>, followed by a call
+ * to <code>selectMove</code>. The player is responsible for remembering the moves it returns.
+ * Game drivers detect this interface and prefer it to <code>selectCell</code>; within a game
+ * the two calling conventions are never mixed.
+ * </p>
+ */
+public interface MNKIncrementalPlayer extends MNKPlayer {
+	/**
+	 * Notifies the move just played by the adversary. It is not called before the
+	 * first move of the game.
+	 *
+	 * @param i i-th row
+	 * @param j j-th column
+	 */
+	public void onOpponentMove(int i, int j);
+
+	/**
+	 * Select a free position on the current board
+	 *
+	 * @return a free cell
+	 */
+	public MNKCell selectMove() throws ExecutionException;
+}
@@ -0,0 +1,191 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only journal of round results, so that an interrupted run of
+ * <code>MNKPlayerTester</code> can be resumed.
+ * <p>
+ * The journal is a text file: a header line describing the match, then one
+ * <code>round &lt;n&gt; &lt;state&gt;</code> line per finished round. Every line is handed to the
+ * operating system as soon as it is written, so it survives the death of the JVM, while the
+ * file is forced to disk every <code>SYNC_ROUNDS</code> rounds or <code>SYNC_MILLIS</code>
+ * milliseconds and on close. A torn last line, left by a crash, is dropped when the journal
+ * is reopened.
+ * </p>
+ * <p>
+ * Usage: MNKJournal &lt;file&gt;<br>
+ * Prints the statistics of the rounds journaled so far, also while the run is going on.
+ * </p>
+ */
+public class MNKJournal implements Closeable {
+	public static final int  SYNC_ROUNDS = 32;
+	public static final long SYNC_MILLIS = 1000;
+
+	private static final String HEADER_PREFIX = "# MNKPlayerTester ";
+
+	private final FileChannel          channel;
+	private final Map<Integer,String>  results;  // finished rounds and their state
+	private int                        unsynced; // rounds written since the last force
+	private long                       lastSync;
+
+	/**
+	 * Opens a journal, creating it if needed, and replays the rounds it holds
+	 *
+	 * @param file   Journal file
+	 * @param header Description of the match: a journal written for another match is refused
+	 *
+	 * @throws IOException If the file cannot be read or written
+	 * @throws IllegalArgumentException If the journal belongs to another match
+	 */
+	public MNKJournal(Path file, String header) throws IOException, IllegalArgumentException {
+		header  = HEADER_PREFIX + header;
+		results = new TreeMap<Integer,String>();
+		long valid = 0;
+		if(Files.exists(file)) {
+			String[] found = new String[1];
+			valid = read(file, found, results);
+			if(found[0] != null && !found[0].equals(header))
+				throw new IllegalArgumentException("Journal " + file + " belongs to another match: " + found[0]);
+		}
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.truncate(valid);
+		channel.position(valid);
+		if(valid == 0) write(header);
+		sync();
+	}
+
+	// Reads the complete lines of a journal: returns the length they span
+	private static long read(Path file, String[] header, Map<Integer,String> results) throws IOException {
+		byte[] data = Files.readAllBytes(file);
+		int start = 0;
+		for(int k = 0; k < data.length; k++) {
+			if(data[k] != '\n') continue;
+			String line = new String(data, start, k - start, StandardCharsets.UTF_8);
+			start = k + 1;
+			if(line.startsWith(HEADER_PREFIX)) {
+				header[0] = line;
+				continue;
+			}
+			String[] T = line.split(" ");
+			if(T.length == 3 && T[0].equals("round")) {
+				try {
+					results.put(Integer.parseInt(T[1]), MNKPlayerTester.GameState.valueOf(T[2]).name());
+				}
+				catch(IllegalArgumentException e) {
+					// Unreadable entry: the round is played again
+				}
+			}
+		}
+		return start;
+	}
+
+	/**
+	 * Returns the state of a journaled round
+	 *
+	 * @param round Round number
+	 *
+	 * @return State name, or <code>null</code> if the round is not in the journal
+	 */
+	public synchronized String result(int round) {
+		return results.get(round);
+	}
+
+	/**
+	 * Appends the result of a round
+	 *
+	 * @param round Round number
+	 * @param state Final state of the round
+	 *
+	 * @throws IOException If the journal cannot be written
+	 */
+	public synchronized void append(int round, String state) throws IOException {
+		write("round " + round + " " + state);
+		results.put(round, state);
+		if(++unsynced >= SYNC_ROUNDS || System.currentTimeMillis() - lastSync >= SYNC_MILLIS)
+			sync();
+	}
+
+	/**
+	 * Forces the journal to disk
+	 *
+	 * @throws IOException If the journal cannot be written
+	 */
+	public synchronized void sync() throws IOException {
+		if(!channel.isOpen()) return;
+		channel.force(false);
+		unsynced = 0;
+		lastSync = System.currentTimeMillis();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if(!channel.isOpen()) return;
+		sync();
+		channel.close();
+	}
+
+	private void write(String line) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+		while(buffer.hasRemaining()) channel.write(buffer);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length != 1) {
+			System.err.println("Usage: MNKJournal <file>");
+			System.exit(1);
+		}
+		String[] header = new String[1];
+		Map<Integer,String> results = new TreeMap<Integer,String>();
+		read(Paths.get(args[0]), header, results);
+
+		MNKPlayerTester.GameState[] states = MNKPlayerTester.GameState.values();
+		int[] count  = new int[states.length];
+		int[] points = new int[2];
+		for(String state : results.values()) {
+			MNKPlayerTester.GameState s = MNKPlayerTester.GameState.valueOf(state);
+			count[s.ordinal()]++;
+			int[] p = MNKPlayerTester.score(s);
+			points[0] += p[0];
+			points[1] += p[1];
+		}
+		System.out.println("Match     : " + (header[0] == null ? "unknown" : header[0].substring(HEADER_PREFIX.length())));
+		System.out.println("Rounds    : " + results.size());
+		for(int s = 0; s < states.length; s++)
+			System.out.println(String.format("%-6s    : %d", states[s], count[s]));
+		System.out.println("Score P1  : " + points[0]);
+		System.out.println("Score P2  : " + points[1]);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+/**
+ * Fixed-memory histogram of latencies, in nanoseconds.
+ * <p>
+ * Values are grouped in logarithmic buckets: each power of two is split in 16 sub-buckets,
+ * so that percentiles are reported with a relative error below 1/16 whatever the range.
+ * The maximum is exact. Moves taking more than 90% of the time budget are counted
+ * separately as near misses.
+ * </p>
+ */
+public class MNKLatencyHistogram {
+	private static final int SUB_BITS = 4;
+	private static final int SUB      = 1 << SUB_BITS;
+
+	private final long[] buckets = new long[(64 - SUB_BITS + 1) * SUB];
+	private final long   nearMissThreshold;
+
+	private long count;
+	private long total;
+	private long max;
+	private long nearMisses;
+
+	/**
+	 * Creates an empty histogram
+	 *
+	 * @param budget Time budget in nanoseconds, used to count near misses
+	 */
+	public MNKLatencyHistogram(long budget) {
+		this.nearMissThreshold = (long) (budget * (90.0 / 100.0));
+	}
+
+	/**
+	 * Records a latency
+	 *
+	 * @param nanos Latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		if(nanos < 0) nanos = 0;
+		buckets[index(nanos)]++;
+		count++;
+		total += nanos;
+		if(nanos > max) max = nanos;
+		if(nanos > nearMissThreshold) nearMisses++;
+	}
+
+	/**
+	 * Returns the number of recorded latencies
+	 *
+	 * @return count
+	 */
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * Returns the sum of the recorded latencies
+	 *
+	 * @return total in nanoseconds
+	 */
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * Returns the largest recorded latency
+	 *
+	 * @return latency in nanoseconds
+	 */
+	public long max() {
+		return max;
+	}
+
+	/**
+	 * Returns the number of latencies above 90% of the budget
+	 *
+	 * @return count
+	 */
+	public long nearMisses() {
+		return nearMisses;
+	}
+
+	/**
+	 * Returns the latency below which the given fraction of the values fall
+	 *
+	 * @param p fraction in [0,1]
+	 *
+	 * @return upper bound of the bucket holding the percentile, in nanoseconds
+	 */
+	public long percentile(double p) {
+		if(count == 0) return 0;
+		long rank = (long) Math.ceil(p * count);
+		if(rank < 1) rank = 1;
+		long seen = 0;
+		for(int k = 0; k < buckets.length; k++) {
+			seen += buckets[k];
+			if(seen >= rank) return Math.min(upperBound(k),max);
+		}
+		return max;
+	}
+
+	// Bucket of a value: values below SUB have their own bucket, the others are
+	// split by exponent and by the SUB_BITS bits following the leading one
+	private static int index(long v) {
+		if(v < SUB) return (int) v;
+		int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+		return (shift + 1) * SUB + (int) ((v >>> shift) & (SUB - 1));
+	}
+
+	private static long upperBound(int index) {
+		if(index < SUB) return index;
+		int shift = index / SUB - 1;
+		long top  = (long) (SUB + index % SUB + 1) << shift;
+		return top <= 0 ? Long.MAX_VALUE : top - 1;
+	}
+}
@@ -30,6 +30,12 @@ import java.util.concurrent.ExecutionException;
  * The implementing classes need to provide a constructor that takes no arguments. The MNKPlayer
  * is initialized through the <code>initPlayer</code> method.
  * </p>
+ * <p>
+ * When <code>initPlayer</code> or <code>selectCell</code> exceed the timeout, the thread
+ * running them is interrupted. Long computations should poll
+ * <code>Thread.currentThread().isInterrupted()</code> and return as soon as the flag is set,
+ * so that the caller can reclaim the thread and go on with the next round.
+ * </p>
  */
 public interface MNKPlayer {
 	/**
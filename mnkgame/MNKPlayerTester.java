@@ -24,6 +24,15 @@ package mnkgame;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Locale;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import java.util.concurrent.Future;
 import java.util.concurrent.Executors;
@@ -47,12 +56,53 @@ import java.util.concurrent.Callable;
  * &nbsp;&nbsp;-t &lt;timeout&gt; Timeout in seconds</br>
  * &nbsp;&nbsp;-r &lt;rounds&gt;  &nbsp;Number of rounds</br>
  * &nbsp;&nbsp;-v &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;Verbose
+ * &nbsp;&nbsp;-l &lt;file&gt; &nbsp;&nbsp;&nbsp;Write the latency summary (CSV) to file</br>
+ * &nbsp;&nbsp;-d &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;End a round as a draw when no player can align K symbols any more</br>
+ * &nbsp;&nbsp;-c &lt;seconds&gt; CPU seconds allowed per move, summed over the player's threads</br>
+ * &nbsp;&nbsp;-n &lt;threads&gt; Threads a player may run at once</br>
+ * &nbsp;&nbsp;-j &lt;file&gt; &nbsp;&nbsp;&nbsp;Journal of the round results: rounds already in it are not played again</br>
+ * &nbsp;&nbsp;-w &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;Worker mode, driven by <code>MNKTournament</code></br>
+ * </p>
+ * <p>
+ * The time taken by <code>initPlayer</code> and <code>selectCell</code> is recorded for each player.
+ * In verbose mode the final report includes the p50, p99 and max latencies and the number of
+ * calls that used more than 90% of the timeout.
+ * </p>
+ * <p>
+ * Each player runs in its own thread group, with the threads it starts, and the CPU time of
+ * the group is sampled with <code>MNKCpuMeter</code> while the player moves, and once more by the
+ * player thread itself when its call returns: the verbose report and the latency file include it. A player going past the CPU or thread limit is interrupted as
+ * on a timeout.
+ * </p>
+ * <p>
+ * With a journal (see <code>MNKJournal</code>) every finished round is appended to the file, so a
+ * run that dies can be started again with the same arguments: the journaled rounds count
+ * in the score without being played, while the latency and CPU reports only cover the rounds
+ * played by the current run. The journal records the options the results depend on, so a run
+ * resumed with another geometry, other players or other <code>-t</code>, <code>-d</code>,
+ * <code>-c</code> or <code>-n</code> values is refused. A round closed because a player does
+ * not stop is journaled as lost by that player before the tester exits.
+ * </p>
+ * <p>
+ * In worker mode the rounds are requested on the standard input, one <code>round &lt;id&gt;</code>
+ * line each, and every round answers <code>result &lt;id&gt; &lt;state&gt;</code> on the standard
+ * output, where state is WINP1, WINP2, DRAW, ERRP1 or ERRP2. Anything else the tester or the
+ * players print goes to the standard error. The input ends with <code>quit</code> or end of file.
  * </p>
  */
 public class MNKPlayerTester {
 	private static int     TIMEOUT = 10;
 	private static int     ROUNDS  = 1;
 	private static boolean VERBOSE = false;
+	private static String  LATENCY_FILE = null;
+	private static boolean EARLY_DRAW = false;
+	private static boolean WORKER = false;
+	private static String  JOURNAL_FILE = null;
+	private static double  CPU_LIMIT    = 0; // seconds per move, 0 for none
+	private static int     THREAD_LIMIT = 0; // 0 for none
+
+	/** Interval between CPU samples while a player moves */
+	private static final long SAMPLE_MILLIS = 10;
 
 	private static int     M;
 	private static int     N;
@@ -60,8 +110,22 @@ public class MNKPlayerTester {
 
 	private static MNKBoard B;
 
+	/** Journal of the round results, if any, and the round being played */
+	private static MNKJournal Journal = null;
+	private static int        Round;
+
 	private static MNKPlayer[] Player = new MNKPlayer[2];
 
+	/** Latencies of initPlayer and selectCell, per player */
+	private static MNKLatencyHistogram[] InitLatency   = new MNKLatencyHistogram[2];
+	private static MNKLatencyHistogram[] SelectLatency = new MNKLatencyHistogram[2];
+
+	/** Thread group, CPU meter and CPU time of initPlayer and selectCell, per player */
+	private static ThreadGroup[]         PlayerGroup = new ThreadGroup[2];
+	private static MNKCpuMeter[]         Cpu         = new MNKCpuMeter[2];
+	private static MNKLatencyHistogram[] InitCpu     = new MNKLatencyHistogram[2];
+	private static MNKLatencyHistogram[] SelectCpu   = new MNKLatencyHistogram[2];
+
 
 	/** Scoring system */
 	private static int WINP1SCORE = 2;
@@ -69,14 +133,84 @@ public class MNKPlayerTester {
 	private static int DRAWSCORE  = 1;
 	private static int ERRSCORE   = 2;
 
-	private enum GameState {
+	enum GameState {
 		WINP1, WINP2, DRAW, ERRP1, ERRP2;
 	}
+
+	/**
+	 * Returns the points won by the first and by the second player in a round
+	 */
+	static int[] score(GameState state) {
+		switch(state) {
+			case WINP1: return new int[] {WINP1SCORE, 0};
+			case WINP2: return new int[] {0, WINP2SCORE};
+			case ERRP1: return new int[] {0, ERRSCORE};
+			case ERRP2: return new int[] {ERRSCORE, 0};
+			default   : return new int[] {DRAWSCORE, DRAWSCORE};
+		}
+	}
 	
 
 	private MNKPlayerTester() {
 	}
 
+	/** A player went past the CPU or the thread limit */
+	private static class LimitException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public LimitException(String message) {
+			super(message);
+		}
+	}
+
+	// Executor running the calls of player k in its thread group
+	private static ExecutorService playerExecutor(int k) {
+		return Executors.newSingleThreadExecutor(r -> new Thread(PlayerGroup[k], r));
+	}
+
+	// Call of player k that samples its CPU meter from the player thread before returning: the
+	// thread ends right after, so a later sample would miss the time used since the last one
+	private static <T> Callable<T> metered(int k, Callable<T> call) {
+		return () -> {
+			try {
+				return call.call();
+			}
+			finally {
+				Cpu[k].sample();
+			}
+		};
+	}
+
+	// Waits for a call of player k, sampling the CPU time of its threads: throws
+	// TimeoutException after TIMEOUT seconds and LimitException past cpuLimit seconds (0 for
+	// none) or THREAD_LIMIT
+	private static <T> T await(int k, Future<T> task, double cpuLimit, MNKLatencyHistogram cpuTime) throws Exception {
+		final long deadline = System.nanoTime() + TIMEOUT*1000000000L;
+		final long cpuStart = Cpu[k].sample();
+		try {
+			while(true) {
+				T result = null;
+				boolean done = false;
+				try {
+					result = task.get(Math.min(SAMPLE_MILLIS, Math.max(1, (deadline - System.nanoTime()) / 1000000)), TimeUnit.MILLISECONDS);
+					done = true;
+				}
+				catch(TimeoutException e) {
+					if(System.nanoTime() >= deadline) throw e;
+				}
+				long cpu = Cpu[k].sample() - cpuStart;
+				if(cpuLimit > 0 && cpu > cpuLimit * 1e9)
+					throw new LimitException("used more than " + cpuLimit + " CPU seconds");
+				if(THREAD_LIMIT > 0 && Cpu[k].threads() > THREAD_LIMIT)
+					throw new LimitException("runs more than " + THREAD_LIMIT + " threads");
+				if(done) return result;
+			}
+		}
+		finally {
+			cpuTime.record(Cpu[k].sample() - cpuStart);
+		}
+	}
+
 	
 	private static void initGame() {
 		if(VERBOSE) System.out.println("Initializing " + M + "," + N + "," + K + " board");
@@ -92,16 +226,25 @@ public class MNKPlayerTester {
 				}
 			};
 
-			final ExecutorService executor = Executors.newSingleThreadExecutor();
-			final Future future = executor.submit(initPlayer);
+			final ExecutorService executor = playerExecutor(i);
+			final long start = System.nanoTime();
+			final Future<?> future = executor.submit(metered(i,Executors.callable(initPlayer)));
 			executor.shutdown();
 			try { 
-				future.get(TIMEOUT, TimeUnit.SECONDS); 
+				await(i, future, 0, InitCpu[i]);
+				InitLatency[i].record(System.nanoTime() - start);
 			} 
 			catch (TimeoutException e) {
+				InitLatency[i].record(System.nanoTime() - start);
+				future.cancel(true);
 				System.err.println("Error: " + Player[i].playerName() + " interrupted: initialization takes too much time");
 				System.exit(1);
 			}
+			catch (LimitException e) {
+				future.cancel(true);
+				System.err.println("Error: " + Player[i].playerName() + " interrupted: initialization " + e.getMessage());
+				System.exit(1);
+			}
 			catch (Exception e) { 
 				System.err.println(e);
 				System.exit(1);		
@@ -122,55 +265,88 @@ public class MNKPlayerTester {
 		}
 
 		public MNKCell call() throws ExecutionException {
+			if(P instanceof MNKIncrementalPlayer) {
+				MNKIncrementalPlayer IP = (MNKIncrementalPlayer) P;
+				MNKCell last = B.getLastMarkedCell();
+				if(last != null) IP.onOpponentMove(last.i,last.j);
+				return IP.selectMove();
+			}
 			return P.selectCell(B.getFreeCells(),B.getMarkedCells());
 		}
 	}
 
+	// Interrupts the player thread and waits for it to stop. A player that
+	// polls the interrupt flag is reclaimed within milliseconds, while an
+	// unresponsive one is given three more TIMEOUT periods before giving up.
+	private static GameState stopPlayer(int curr, Future<?> task, ExecutorService executor) {
+		task.cancel(true);
+		executor.shutdownNow();
+
+		int n = 3; // Wait some more time to see if it stops
+		try {
+			while(n > 0 && !executor.awaitTermination(TIMEOUT, TimeUnit.SECONDS)) {
+				System.err.println("Waiting for " + Player[curr].playerName() + " to stop ... (" + n + ")");
+				n--;
+			}
+		} catch(InterruptedException e) {
+			n = 0;
+		}
+
+		if(n == 0) {
+			System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") still running: game closed");
+			// Journaled and forced to disk, so a resumed run does not play the round again
+			journal(curr == 0 ? GameState.ERRP1 : GameState.ERRP2, true);
+			System.exit(1);
+		}
+		System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped: round closed");
+		return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
+	}
+
+	// Appends the result of the current round to the journal, if any, forcing it to disk if sync
+	private static void journal(GameState state, boolean sync) {
+		if(Journal == null) return;
+		try {
+			Journal.append(Round,state.name());
+			if(sync) Journal.sync();
+		}
+		catch(IOException e) {
+			System.err.println("Error: cannot write " + JOURNAL_FILE + ": " + e);
+			System.exit(1);
+		}
+	}
+
 	private static GameState runGame() {
 		while(B.gameState() == MNKGameState.OPEN) {
+			if(EARLY_DRAW && B.isDeadDraw()) {
+				if(VERBOSE) System.out.println("No alignment left for either player: round closed as a draw");
+				return GameState.DRAW;
+			}
 			int  curr = B.currentPlayer();
-			final ExecutorService executor = Executors.newSingleThreadExecutor();
-			final Future<MNKCell> task     = executor.submit(new StoppablePlayer(Player[curr],B));
+			final ExecutorService executor = playerExecutor(curr);
+			final long            start    = System.nanoTime();
+			final Future<MNKCell> task     = executor.submit(metered(curr,new StoppablePlayer(Player[curr],B)));
 			executor.shutdown(); // Makes the  ExecutorService stop accepting new tasks
 			
 			MNKCell c = null;
 			
 			try {
-				c = task.get(TIMEOUT, TimeUnit.SECONDS);
+				c = await(curr, task, CPU_LIMIT, SelectCpu[curr]);
+				SelectLatency[curr].record(System.nanoTime() - start);
 			}
 			catch(TimeoutException ex) {
-				int n = 3; // Wait some more time to see if it stops
+				SelectLatency[curr].record(System.nanoTime() - start);
 				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to timeout");
-				while(!task.isDone() && n > 0) {
-					System.err.println("Waiting for " + Player[curr].playerName() + " to stop ... (" + n + ")");
-					try {Thread.sleep(TIMEOUT*1000);} catch(InterruptedException e) {}
-					n--;
-				}
-				
-				if(n == 0) {
-					System.err.println("Player " + (curr+1) + " (" +Player[curr].playerName() + ") still running: game closed");
-					System.exit(1);
-				} else {
-					System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped: round closed");
-					return curr == 0 ? GameState.ERRP1 : GameState.ERRP2; 
-				}
+				return stopPlayer(curr,task,executor);
+			}
+			catch(LimitException ex) {
+				SelectLatency[curr].record(System.nanoTime() - start);
+				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted: " + ex.getMessage());
+				return stopPlayer(curr,task,executor);
 			}
 			catch (Exception ex) {
-				int n = 3; // Wait some more time to see if it stops
 				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to exception");
 				System.err.println(" " + ex);
-				while(!task.isDone() && n > 0) {
-					System.err.println("Waiting for " + Player[curr].playerName() + " to stop ... (" + n + ")");
-					try {Thread.sleep(TIMEOUT*1000);} catch(InterruptedException e) {}
-					n--;
-				}
-				if(n == 0) {
-					System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") still running: game closed");
-					System.exit(1);
-				} else {
-					System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped: round closed");
-					return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
-				}
+				return stopPlayer(curr,task,executor);
 			}
 			
 			if (!executor.isTerminated())
@@ -218,6 +394,40 @@ public class MNKPlayerTester {
 						case 'v':
 							VERBOSE = true;
 							break;
+						case 'd':
+							EARLY_DRAW = true;
+							break;
+						case 'w':
+							WORKER = true;
+							break;
+						case 'c':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+							try {
+								CPU_LIMIT = Double.parseDouble(args[++i]);
+							} catch(NumberFormatException e) {
+								throw new IllegalArgumentException("Illegal number format for " + args[i-1] + " argument: " + args[i]);
+							}
+							break;
+						case 'j':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+							JOURNAL_FILE = args[++i];
+							break;
+						case 'n':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+							try {
+								THREAD_LIMIT = Integer.parseInt(args[++i]);
+							} catch(NumberFormatException e) {
+								throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
+							}
+							break;
+						case 'l':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+							LATENCY_FILE = args[++i];
+							break;
 						default: 
 							throw new IllegalArgumentException("Illegal argument:  " + args[i]);
 					}
@@ -280,6 +490,74 @@ public class MNKPlayerTester {
 		System.err.println("  -t <timeout>  Timeout in seconds. Default: " + TIMEOUT);
 		System.err.println("  -r <rounds>   Number of rounds. Default: " + ROUNDS);
 		System.err.println("  -v            Verbose. Default: " + VERBOSE);
+		System.err.println("  -l <file>     Write the latency summary (CSV) to file");
+		System.err.println("  -d            End a round as a draw when no player can align K symbols. Default: " + EARLY_DRAW);
+		System.err.println("  -c <seconds>  CPU seconds per move, over all the player's threads. Default: none");
+		System.err.println("  -n <threads>  Threads a player may run at once. Default: none");
+		System.err.println("  -j <file>     Journal of the results, to resume an interrupted run");
+		System.err.println("  -w            Worker mode: rounds are requested on stdin (see MNKTournament)");
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	private static void printLatencies() {
+		System.out.println("\n**** LATENCY (ms) ****");
+		System.out.println(String.format("%-20s %-6s %8s %10s %10s %10s %10s", "Player", "Call", "Count", "p50", "p99", "Max", ">90%"));
+		for(int k = 0; k < 2; k++) {
+			MNKLatencyHistogram[] H = {InitLatency[k], SelectLatency[k]};
+			String[] call = {"init", "select"};
+			for(int h = 0; h < 2; h++)
+				System.out.println(String.format("%-20s %-6s %8d %10s %10s %10s %10d", Player[k].playerName(), call[h], H[h].count(),
+					millis(H[h].percentile(0.50)), millis(H[h].percentile(0.99)), millis(H[h].max()), H[h].nearMisses()));
+		}
+
+		System.out.println("\n**** CPU TIME (ms) ****");
+		System.out.println(String.format("%-20s %-6s %8s %10s %10s %10s %10s", "Player", "Call", "Count", "p50", "p99", "Max", "Total"));
+		for(int k = 0; k < 2; k++) {
+			MNKLatencyHistogram[] H = {InitCpu[k], SelectCpu[k]};
+			String[] call = {"init", "select"};
+			for(int h = 0; h < 2; h++)
+				System.out.println(String.format("%-20s %-6s %8d %10s %10s %10s %10s", Player[k].playerName(), call[h], H[h].count(),
+					millis(H[h].percentile(0.50)), millis(H[h].percentile(0.99)), millis(H[h].max()), millis(H[h].total())));
+		}
+	}
+
+	private static void writeLatencies(String file) throws IOException {
+		try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file)))) {
+			out.println("player,name,call,count,p50_ms,p99_ms,max_ms,near_miss,timeout_ms,cpu_p50_ms,cpu_max_ms,cpu_total_ms");
+			for(int k = 0; k < 2; k++) {
+				MNKLatencyHistogram[] H = {InitLatency[k], SelectLatency[k]};
+				MNKLatencyHistogram[] C = {InitCpu[k], SelectCpu[k]};
+				String[] call = {"init", "select"};
+				for(int h = 0; h < 2; h++)
+					out.println((k+1) + "," + Player[k].playerName().replace(',',' ') + "," + call[h] + "," + H[h].count() + "," +
+						millis(H[h].percentile(0.50)) + "," + millis(H[h].percentile(0.99)) + "," + millis(H[h].max()) + "," +
+						H[h].nearMisses() + "," + TIMEOUT*1000 + "," +
+						millis(C[h].percentile(0.50)) + "," + millis(C[h].max()) + "," + millis(C[h].total()));
+			}
+		}
+	}
+
+	// Plays the rounds requested on stdin: the protocol keeps the real stdout to itself
+	private static void runWorker() throws IOException {
+		PrintStream out = System.out;
+		System.setOut(System.err);
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		String line;
+		while((line = in.readLine()) != null) {
+			String[] T = line.trim().split("\\s+");
+			if(T[0].equals("quit")) break;
+			if(!T[0].equals("round") || T.length != 2) {
+				System.err.println("Worker: unknown request '" + line + "'");
+				continue;
+			}
+			initGame();
+			GameState state = runGame();
+			out.println("result " + T[1] + " " + state);
+			out.flush();
+		}
 	}
 
 	public static void main(String[] args) {
@@ -307,25 +585,80 @@ public class MNKPlayerTester {
 			System.out.println("Timeout   : " + TIMEOUT + " secs\n\n");
 		}
 
+		for(int k = 0; k < 2; k++) {
+			InitLatency[k]   = new MNKLatencyHistogram(TIMEOUT*1000000000L);
+			SelectLatency[k] = new MNKLatencyHistogram(TIMEOUT*1000000000L);
+			InitCpu[k]       = new MNKLatencyHistogram(TIMEOUT*1000000000L);
+			SelectCpu[k]     = new MNKLatencyHistogram(TIMEOUT*1000000000L);
+			PlayerGroup[k]   = new ThreadGroup("Player " + (k+1));
+			Cpu[k]           = new MNKCpuMeter(PlayerGroup[k]);
+		}
+		if((CPU_LIMIT > 0 || VERBOSE) && !MNKCpuMeter.isSupported())
+			System.err.println("Warning: this JVM does not measure thread CPU time");
+
+		if(WORKER) {
+			try {
+				runWorker();
+			}
+			catch(IOException e) {
+				System.err.println("Worker: " + e);
+				System.exit(1);
+			}
+			System.exit(0);
+		}
+
+		if(JOURNAL_FILE != null) {
+			try {
+				Journal = new MNKJournal(Paths.get(JOURNAL_FILE), M + " " + N + " " + K + " " + Player[0].getClass().getName() + " " +
+					Player[1].getClass().getName() + " -t " + TIMEOUT + (EARLY_DRAW ? " -d" : "") +
+					(CPU_LIMIT > 0 ? " -c " + CPU_LIMIT : "") + (THREAD_LIMIT > 0 ? " -n " + THREAD_LIMIT : ""));
+			}
+			catch(IOException | IllegalArgumentException e) {
+				System.err.println("Error: cannot open " + JOURNAL_FILE + ": " + e.getMessage());
+				System.exit(1);
+			}
+			// Rounds closed by System.exit, e.g. on a stuck player, still reach the disk
+			final MNKJournal J = Journal;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					J.close();
+				}
+				catch(IOException e) {
+					System.err.println("Error: cannot write " + JOURNAL_FILE + ": " + e);
+				}
+			}));
+		}
+
 		for(int i = 1; i <= ROUNDS; i++) {
 			if(VERBOSE) System.out.println("\n**** ROUND " + i + " ****");
-			initGame();
-			GameState state = runGame();
-
-			switch(state) {
-				case WINP1: P1SCORE += WINP1SCORE; break;
-				case WINP2: P2SCORE += WINP2SCORE; break;
-				case ERRP1: P2SCORE += ERRSCORE;   break;
-				case ERRP2: P1SCORE += ERRSCORE;   break;
-				case DRAW : P1SCORE += DRAWSCORE;
-				            P2SCORE += DRAWSCORE;
-				            break;
+			GameState state;
+			if(Journal != null && Journal.result(i) != null) {
+				state = GameState.valueOf(Journal.result(i));
+				if(VERBOSE) System.out.println("Result from the journal");
+			} else {
+				Round = i;
+				initGame();
+				state = runGame();
+				journal(state, false);
 			}
+
+			int[] points = score(state);
+			P1SCORE += points[0];
+			P2SCORE += points[1];
 			if(VERBOSE) {
 				System.out.println("\nGame state    : " + state);
 				System.out.println("Current score : " + Player[0].playerName() + " (" + P1SCORE + ") - " + Player[1].playerName() + " (" + P2SCORE + ")");
 			}
 		}
+		if(VERBOSE) printLatencies();
+		if(LATENCY_FILE != null) {
+			try {
+				writeLatencies(LATENCY_FILE);
+			}
+			catch(IOException e) {
+				System.err.println("Error: cannot write " + LATENCY_FILE + ": " + e);
+			}
+		}
 		if(VERBOSE) System.out.println("\n**** FINAL SCORE ****");
 		System.out.println(Player[0].playerName() + " " + P1SCORE);
 		System.out.println(Player[1].playerName() + " " + P2SCORE);	
@@ -0,0 +1,40 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+/**
+ * Receives the progress of a player while it selects its move.
+ * <p>
+ * Calls come from the thread running the player, so implementations must hand the
+ * values over to their own thread (e.g. the Swing event thread) before using them.
+ * </p>
+ */
+public interface MNKProgressListener {
+	/**
+	 * Reports a completed search iteration
+	 *
+	 * @param depth depth of the iteration
+	 * @param best best cell found so far
+	 */
+	public void progress(int depth, MNKCell best);
+}
@@ -0,0 +1,36 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+/**
+ * Optional extension of <code>MNKPlayer</code> for players whose time per move can change
+ * during a game, as with the <code>go</code> time of <code>MNKEngineServer</code>.
+ */
+public interface MNKTimedPlayer extends MNKPlayer {
+	/**
+	 * Sets the time of the next move selections, until set again
+	 *
+	 * @param timeout_in_secs time per move, in seconds
+	 */
+	public void setMoveTimeout(int timeout_in_secs);
+}
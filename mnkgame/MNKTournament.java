@@ -0,0 +1,272 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the rounds of a match between two MNKPlayer classes on several worker JVMs, so that
+ * concurrent games do not share heap, JIT or garbage collector.
+ * <p>
+ * Usage: MNKTournament [OPTIONS] &lt;M&gt; &lt;N&gt; &lt;K&gt; &lt;MNKPlayer class name&gt; &lt;MNKPlayer class name&gt;<br>
+ * OPTIONS:<br>
+ * &nbsp;&nbsp;-j &lt;workers&gt; Number of worker processes</br>
+ * &nbsp;&nbsp;-c &lt;cores&gt; &nbsp;&nbsp;Cores pinned to each worker with <code>taskset</code> (0 for no pinning)</br>
+ * &nbsp;&nbsp;-t &lt;timeout&gt; Timeout in seconds</br>
+ * &nbsp;&nbsp;-r &lt;rounds&gt; &nbsp;Number of rounds</br>
+ * &nbsp;&nbsp;-d &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;End rounds as draws when no player can align K symbols</br>
+ * </p>
+ * <p>
+ * Each worker is an <code>MNKPlayerTester</code> in worker mode, started with the class path
+ * and the JVM options of the coordinator, and plays one round at a time over its standard
+ * input and output. Results are printed as they arrive and the final score is the one of
+ * <code>MNKPlayerTester</code>. A round whose worker dies is given to a fresh worker, up to
+ * <code>RETRIES</code> times, after which it is reported as failed and not scored.
+ * </p>
+ */
+public class MNKTournament {
+	private static final int RETRIES = 2;
+
+	private static int     WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	private static int     CORES   = 0;
+	private static int     TIMEOUT = 10;
+	private static int     ROUNDS  = 1;
+	private static boolean EARLY_DRAW = false;
+	private static String[] GAME;   // M N K P1 P2
+
+	private static LinkedBlockingDeque<Integer> Jobs;
+	private static int[]                        Attempts;
+	private static CountDownLatch               Pending;
+
+	private static int P1SCORE, P2SCORE, FAILED;
+	private static final int[] Outcomes = new int[MNKPlayerTester.GameState.values().length];
+
+	private MNKTournament() {
+	}
+
+	// Command line of worker w: same java, class path and JVM options, pinned if requested
+	private static List<String> workerCommand(int w) {
+		List<String> cmd = new ArrayList<String>();
+		int cpus = Runtime.getRuntime().availableProcessors();
+		if(CORES > 0 && hasTaskset()) {
+			int first = (w * CORES) % cpus;
+			int last  = Math.min(cpus - 1, first + CORES - 1);
+			cmd.add("taskset");
+			cmd.add("-c");
+			cmd.add(first == last ? "" + first : first + "-" + last);
+		}
+		cmd.add(ProcessHandle.current().info().command().orElse("java"));
+		cmd.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add("mnkgame.MNKPlayerTester");
+		cmd.add("-w");
+		cmd.add("-t");
+		cmd.add("" + TIMEOUT);
+		if(EARLY_DRAW) cmd.add("-d");
+		for(String arg : GAME) cmd.add(arg);
+		return cmd;
+	}
+
+	private static boolean hasTaskset() {
+		String path = System.getenv("PATH");
+		if(path == null) return false;
+		for(String dir : path.split(File.pathSeparator))
+			if(new File(dir, "taskset").canExecute()) return true;
+		return false;
+	}
+
+	private static synchronized void report(int round, int w, MNKPlayerTester.GameState state) {
+		int[] points = MNKPlayerTester.score(state);
+		P1SCORE += points[0];
+		P2SCORE += points[1];
+		Outcomes[state.ordinal()]++;
+		System.out.println("Round " + round + " (worker " + w + "): " + state);
+		Pending.countDown();
+	}
+
+	// Puts the round back in the queue, or gives up on it
+	private static synchronized void retry(int round, int w) {
+		if(++Attempts[round-1] <= RETRIES) {
+			System.err.println("Worker " + w + " died during round " + round + ": rescheduled");
+			Jobs.addFirst(round);
+		} else {
+			System.err.println("Worker " + w + " died during round " + round + ": round failed");
+			FAILED++;
+			Pending.countDown();
+		}
+	}
+
+	// Feeds rounds to worker processes, starting a new one whenever the previous dies
+	private static class Worker extends Thread {
+		private final int w;
+
+		Worker(int w) {
+			this.w = w;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			Integer round = null;
+			while(true) {
+				Process P = null;
+				try {
+					P = new ProcessBuilder(workerCommand(w)).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+					BufferedReader in  = new BufferedReader(new InputStreamReader(P.getInputStream()));
+					PrintWriter    out = new PrintWriter(P.getOutputStream(), true);
+					while(true) {
+						round = Jobs.poll(100, TimeUnit.MILLISECONDS);
+						if(round == null) {
+							if(Pending.getCount() == 0) {
+								out.println("quit");
+								P.waitFor(TIMEOUT, TimeUnit.SECONDS);
+								return;
+							}
+							continue;
+						}
+						out.println("round " + round);
+						String line;
+						while((line = in.readLine()) != null && !line.startsWith("result " + round + " "));
+						if(line == null) throw new IOException("worker exited");
+						report(round, w, MNKPlayerTester.GameState.valueOf(line.split(" ")[2]));
+						round = null;
+					}
+				}
+				catch(IOException | IllegalArgumentException e) {
+					if(round != null) retry(round, w);
+					round = null;
+					if(P == null) {
+						System.err.println("Worker " + w + " cannot start: " + e);
+						return;
+					}
+				}
+				catch(InterruptedException e) {
+					return;
+				}
+				finally {
+					if(P != null) P.destroyForcibly();
+				}
+			}
+		}
+	}
+
+	private static void parseArgs(String args[]) {
+		List<String> L = new ArrayList<String>();
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].charAt(0) != '-') {
+				L.add(args[i]);
+				continue;
+			}
+			char c = (args[i].length() != 2 ? 'x' : args[i].charAt(1));
+			if(c == 'd') {
+				EARLY_DRAW = true;
+				continue;
+			}
+			if(args.length < i+2)
+				throw new IllegalArgumentException("Expected parameter after " + args[i]);
+			int value;
+			try {
+				value = Integer.parseInt(args[++i]);
+			} catch(NumberFormatException e) {
+				throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
+			}
+			switch(c) {
+				case 'j': WORKERS = value; break;
+				case 'c': CORES   = value; break;
+				case 't': TIMEOUT = value; break;
+				case 'r': ROUNDS  = value; break;
+				default : throw new IllegalArgumentException("Illegal argument:  " + args[i-1]);
+			}
+		}
+		if(L.size() != 5)
+			throw new IllegalArgumentException("Expected <M> <N> <K> <MNKPlayer class> <MNKPlayer class>");
+		if(WORKERS <= 0 || CORES < 0 || TIMEOUT <= 0 || ROUNDS <= 0)
+			throw new IllegalArgumentException("Workers, timeout and rounds must be larger than 0");
+		GAME = L.toArray(new String[0]);
+	}
+
+	private static void printUsage() {
+		System.err.println("Usage: MNKTournament [OPTIONS] <M> <N> <K> <MNKPlayer class> <MNKPlayer class>");
+		System.err.println("OPTIONS:");
+		System.err.println("  -j <workers>  Number of worker processes. Default: " + WORKERS);
+		System.err.println("  -c <cores>    Cores pinned to each worker with taskset, 0 for none. Default: " + CORES);
+		System.err.println("  -t <timeout>  Timeout in seconds. Default: " + TIMEOUT);
+		System.err.println("  -r <rounds>   Number of rounds. Default: " + ROUNDS);
+		System.err.println("  -d            End rounds as draws when no player can align K symbols");
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if(args.length == 0) {
+			printUsage();
+			System.exit(0);
+		}
+		try {
+			parseArgs(args);
+		}
+		catch(Exception e) {
+			System.err.println(e);
+			System.exit(1);
+		}
+
+		Jobs     = new LinkedBlockingDeque<Integer>();
+		Attempts = new int[ROUNDS];
+		Pending  = new CountDownLatch(ROUNDS);
+		for(int r = 1; r <= ROUNDS; r++) Jobs.add(r);
+
+		List<Worker> workers = new ArrayList<Worker>();
+		for(int w = 0; w < Math.min(WORKERS, ROUNDS); w++) {
+			Worker W = new Worker(w);
+			workers.add(W);
+			W.start();
+		}
+		// Waits for the rounds, unless every worker gave up
+		while(!Pending.await(1, TimeUnit.SECONDS)) {
+			boolean alive = false;
+			for(Worker W : workers) alive |= W.isAlive();
+			if(!alive) {
+				System.err.println("No worker left: tournament aborted");
+				System.exit(1);
+			}
+		}
+		for(Worker W : workers) W.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+
+		System.out.println("\n**** FINAL SCORE ****");
+		MNKPlayerTester.GameState[] states = MNKPlayerTester.GameState.values();
+		for(int s = 0; s < states.length; s++)
+			System.out.println(String.format("%-6s %d", states[s], Outcomes[s]));
+		if(FAILED > 0) System.out.println("FAILED " + FAILED);
+		System.out.println(GAME[3] + " " + P1SCORE);
+		System.out.println(GAME[4] + " " + P2SCORE);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zobrist keys for a board geometry.
+ * <p>
+ * Every (cell, player) pair has a random 64-bit key and a position is identified by the
+ * exclusive or of the keys of its marked cells, which a board updates with one operation per
+ * move. The keys are drawn from a SplitMix64 sequence seeded by M and N only, so the same
+ * position has the same key in every process and every run; the player to move is implied
+ * by the number of marked cells.
+ * </p>
+ *
+ * @see MNKBoard#zobristKey() MNKBoard.zobristKey()
+ */
+public final class MNKZobrist {
+	private static final ConcurrentHashMap<Long,MNKZobrist> tables = new ConcurrentHashMap<Long,MNKZobrist>();
+
+	/**
+   * Board rows
+   */
+	public final int M;
+	/**
+   * Board columns
+   */
+	public final int N;
+
+	private final long[] keys; // indexed by 2*(i*N+j) + player
+
+	private MNKZobrist(int M, int N) {
+		this.M = M;
+		this.N = N;
+
+		keys = new long[2*M*N];
+		long state = 0x9E3779B97F4A7C15L * (((long) M << 32) | N);
+		for(int k = 0; k < keys.length; k++) {
+			long z = (state += 0x9E3779B97F4A7C15L);
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			keys[k] = z ^ (z >>> 31);
+		}
+	}
+
+	/**
+	 * Returns the shared keys for an MxN board
+	 *
+	 * @param M Board rows
+	 * @param N Board columns
+	 *
+	 * @return Zobrist keys for the (M,N) geometry
+	 * @throws IllegalArgumentException If M,N are smaller than 1
+	 */
+	public static MNKZobrist forGeometry(int M, int N) throws IllegalArgumentException {
+		if (M <= 0) throw new IllegalArgumentException("M cannot be smaller than 1");
+		if (N <= 0) throw new IllegalArgumentException("N cannot be smaller than 1");
+
+		return tables.computeIfAbsent(((long) M << 32) | N, key -> new MNKZobrist(M,N));
+	}
+
+	/**
+	 * Returns the key of a cell marked by a player
+	 *
+	 * @param cell   Cell index <code>i*N+j</code>
+	 * @param player 0 (first player) or 1 (second player)
+	 *
+	 * @return 64-bit key
+	 */
+	public long key(int cell, int player) {
+		return keys[2*cell + player];
+	}
+}
@@ -74,7 +74,7 @@ public class QuasiRandomPlayer implements MNKPlayer {
 		// Check whether there is single move win 
 		for(MNKCell d : FC) {
 			// If time is running out, select a random cell
-			if((System.currentTimeMillis()-start)/1000.0 > TIMEOUT*(99.0/100.0)) {
+			if((System.currentTimeMillis()-start)/1000.0 > TIMEOUT*(99.0/100.0) || Thread.currentThread().isInterrupted()) {
 				MNKCell c = FC[rand.nextInt(FC.length)];
 				B.markCell(c.i,c.j);
 				return c;
@@ -94,7 +94,7 @@ public class QuasiRandomPlayer implements MNKPlayer {
 		B.markCell(c.i,c.j); // mark the random position	
 		for(int k = 0; k < FC.length; k++) {
 			// If time is running out, return the randomly selected  cell
-      if((System.currentTimeMillis()-start)/1000.0 > TIMEOUT*(99.0/100.0)) {
+      if((System.currentTimeMillis()-start)/1000.0 > TIMEOUT*(99.0/100.0) || Thread.currentThread().isInterrupted()) {
 				return c;
 			} else if(k != pos) {     
 				MNKCell d = FC[k];
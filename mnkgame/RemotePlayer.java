@@ -0,0 +1,190 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * MNKPlayer adapter for a player hosted by an <code>MNKEngineServer</code>.
+ * <p>
+ * The server is chosen through system properties:
+ * <ul>
+ * <li><code>mnkgame.remote.port</code>: connects to a server listening on the loopback interface</li>
+ * <li><code>mnkgame.remote.command</code>: otherwise, starts the server with this command line
+ *     (e.g. <code>java -cp . mnkgame.MNKEngineServer Cucci_Bindi.AiPvs</code>) and talks to it
+ *     through its standard streams</li>
+ * </ul>
+ * The connection is opened on first use and kept across games, so one warm engine serves
+ * all of them. When <code>selectCell</code> is interrupted, the server is told to stop and its
+ * answer is discarded before the next command. The lines of the server are read by a
+ * daemon thread, so waiting for them blocks without polling.
+ * </p>
+ */
+public class RemotePlayer implements MNKPlayer {
+	private static final String CLOSED = "\n"; // queued at end of stream, never a line
+
+	private BlockingQueue<String> lines; // filled by the reader thread
+	// Group of the thread creating the player: the reader is not one of the threads of the
+	// player, so it must not run in the group that MNKPlayerTester meters and limits
+	private final ThreadGroup readerGroup = Thread.currentThread().getThreadGroup();
+	private PrintWriter    out;
+	private String         name;
+	private boolean        stopping; // a stopped go still has to answer
+
+	private void connect() throws IOException {
+		if(lines != null) return;
+		String port    = System.getProperty("mnkgame.remote.port");
+		String command = System.getProperty("mnkgame.remote.command");
+		BufferedReader in;
+		if(port != null) {
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(),Integer.parseInt(port));
+			in  = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
+		} else if(command != null) {
+			Process server = new ProcessBuilder(command.trim().split("\\s+")).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			in  = new BufferedReader(new InputStreamReader(server.getInputStream()));
+			out = new PrintWriter(new OutputStreamWriter(server.getOutputStream()));
+		} else {
+			throw new IllegalStateException("Set mnkgame.remote.port or mnkgame.remote.command");
+		}
+		lines = new LinkedBlockingQueue<>();
+		Thread reader = new Thread(readerGroup,() -> read(in),"RemotePlayer reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Queues the lines of the server until the end of the stream
+	 */
+	private void read(BufferedReader in) {
+		try {
+			for(String line = in.readLine(); line != null; line = in.readLine())
+				lines.add(line);
+		}
+		catch(IOException e) {
+			// Same as the end of the stream
+		}
+		lines.add(CLOSED);
+	}
+
+	private void send(String line) {
+		out.println(line);
+		out.flush();
+	}
+
+	/**
+	 * Waits for the next line of the server; the wait can be interrupted
+	 */
+	private String receive() throws IOException, InterruptedException {
+		String line = lines.take();
+		if(line == CLOSED) {
+			lines.add(CLOSED); // later calls fail as well
+			throw new IOException("Server closed the connection");
+		}
+		return line;
+	}
+
+	/**
+	 * Connects if needed and discards the answer of a stopped go
+	 */
+	private void ready() throws IOException, InterruptedException {
+		connect();
+		if(stopping) {
+			String line;
+			do line = receive(); while(!line.startsWith("bestmove") && !line.startsWith("error"));
+			stopping = false;
+		}
+	}
+
+	/**
+	 * Sends a command and returns the first answer starting with prefix, or throws on an error
+	 */
+	private String request(String command, String prefix) throws IOException, InterruptedException {
+		ready();
+		send(command);
+		while(true) {
+			String line = receive();
+			if(line.startsWith(prefix)) return line;
+			if(line.startsWith("error")) throw new IllegalStateException("Remote " + line);
+		}
+	}
+
+	public void initPlayer(int M, int N, int K, boolean first, int timeout_in_secs) {
+		// Asked now: the tester may want the name while a later request is still waiting
+		playerName();
+		try {
+			request("newgame " + M + " " + N + " " + K + " " + (first ? "first" : "second") + " " + timeout_in_secs,"ready");
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public MNKCell selectCell(MNKCell[] FC, MNKCell[] MC) {
+		try {
+			ready();
+			if(MC.length > 0) {
+				send("move " + MC[MC.length-1].i + " " + MC[MC.length-1].j);
+			}
+			String[] answer = request("go","bestmove").split("\\s+");
+			int i = Integer.parseInt(answer[1]);
+			int j = Integer.parseInt(answer[2]);
+			for(MNKCell c : FC)
+				if(c.i == i && c.j == j) return c;
+			return new MNKCell(i,j);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		catch(InterruptedException e) {
+			send("stop");
+			stopping = true;
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	public String playerName() {
+		if(name == null) {
+			try {
+				name = request("name","name").substring(5);
+			}
+			catch(Exception e) {
+				return "RemotePlayer";
+			}
+		}
+		return name;
+	}
+}